@@ -0,0 +1,68 @@
+package com.example.demo.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.Item;
+
+/**
+ * {@link Cart#addItem} and {@link Cart#removeItem} against a cart that already
+ * holds {@code lines} distinct items.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CartBenchmark {
+
+    @Param({ "1", "10", "100" })
+    public int lines;
+
+    private Cart cart;
+
+    private Item existing;
+
+    private Item fresh;
+
+    @Setup
+    public void setUp() {
+        cart = Fixtures.cart(lines, 2);
+        existing = cart.getLines().iterator().next().getItem();
+        fresh = Fixtures.items(lines + 1)[lines];
+    }
+
+    @Benchmark
+    public Cart addAndRemoveExistingLine() {
+        cart.addItem(existing, 1);
+        cart.removeItem(existing, 1);
+        return cart;
+    }
+
+    @Benchmark
+    public Cart addAndRemoveNewLine() {
+        cart.addItem(fresh, 1);
+        cart.removeItem(fresh, 1);
+        return cart;
+    }
+
+    @Benchmark
+    public Cart setQuantity() {
+        cart.setQuantity(existing, 5);
+        cart.setQuantity(existing, 2);
+        return cart;
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.demo.benchmarks;
+
+import java.math.BigDecimal;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.User;
+
+/**
+ * Detached domain objects shaped like production data, shared by the suites.
+ */
+final class Fixtures {
+
+    private Fixtures() {
+    }
+
+    static Item[] items(int count) {
+        Item[] items = new Item[count];
+        for (int i = 0; i < count; i++) {
+            Item item = new Item();
+            item.setId((long) i + 1);
+            item.setName("Item " + i);
+            item.setDescription("A reasonably descriptive description of item " + i);
+            item.setPrice(BigDecimal.valueOf(199 + (i * 37) % 9_800, 2));
+            items[i] = item;
+        }
+        return items;
+    }
+
+    static User user() {
+        User user = new User();
+        user.setId(1L);
+        user.setUsername("benchmark-user");
+        user.setPassword("unused");
+        return user;
+    }
+
+    /**
+     * A cart holding {@code lines} distinct items, {@code unitsPerLine} units each.
+     */
+    static Cart cart(int lines, int unitsPerLine) {
+        User user = user();
+        Cart cart = new Cart();
+        cart.setId(1L);
+        cart.setUser(user);
+        user.setCart(cart);
+        for (Item item : items(lines)) {
+            cart.addItem(item, unitsPerLine);
+        }
+        return cart;
+    }
+}
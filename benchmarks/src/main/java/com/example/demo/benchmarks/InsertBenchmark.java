@@ -0,0 +1,128 @@
+package com.example.demo.benchmarks;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.SareetaApplication;
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.model.persistence.repositories.OrderRepository;
+import com.example.demo.model.persistence.repositories.UserRepository;
+
+/**
+ * Bulk inserts through the repositories, {@value #CHUNK} rows per
+ * transaction, against the application's embedded H2 database. Scores are
+ * items, or orders of {@value #LINES} lines each, per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InsertBenchmark {
+
+    private static final int CHUNK = 500;
+
+    private static final int LINES = 3;
+
+    private ConfigurableApplicationContext context;
+
+    private TransactionTemplate tx;
+
+    private ItemRepository itemRepository;
+
+    private OrderRepository orderRepository;
+
+    private User user;
+
+    private List<Long> itemIds;
+
+    @Setup
+    public void setUp() {
+        context = SpringApplication.run(SareetaApplication.class,
+                "--server.port=0",
+                "--management.server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:insert-benchmark;DB_CLOSE_DELAY=-1",
+                "--logging.level.root=WARN");
+        tx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        itemRepository = context.getBean(ItemRepository.class);
+        orderRepository = context.getBean(OrderRepository.class);
+        UserRepository userRepository = context.getBean(UserRepository.class);
+
+        user = tx.execute(status -> {
+            User u = new User();
+            u.setUsername("insert-benchmark");
+            u.setPassword("unused");
+            return userRepository.save(u);
+        });
+        itemIds = new ArrayList<>();
+        for (Item item : tx.execute(status -> itemRepository.saveAll(items(LINES)))) {
+            itemIds.add(item.getId());
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CHUNK)
+    public List<Item> items() {
+        return tx.execute(status -> itemRepository.saveAll(items(CHUNK)));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CHUNK)
+    public List<UserOrder> orders() {
+        return tx.execute(status -> {
+            // Items loaded in the transaction, so versions of the order model
+            // that cascade to items find them managed rather than detached.
+            Cart cart = new Cart();
+            cart.setUser(user);
+            for (Item item : itemRepository.findAllById(itemIds)) {
+                cart.addItem(item, 1);
+            }
+            List<UserOrder> orders = new ArrayList<>(CHUNK);
+            for (int i = 0; i < CHUNK; i++) {
+                orders.add(UserOrder.createFromCart(cart));
+            }
+            return orderRepository.saveAll(orders);
+        });
+    }
+
+    private static List<Item> items(int count) {
+        List<Item> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Item item = new Item();
+            item.setName("Bench Item " + i);
+            item.setDescription("Benchmark item");
+            item.setPrice(BigDecimal.ONE);
+            items.add(item);
+        }
+        return items;
+    }
+}
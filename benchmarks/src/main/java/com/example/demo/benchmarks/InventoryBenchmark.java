@@ -0,0 +1,83 @@
+package com.example.demo.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.demo.inventory.StripedStock;
+
+/**
+ * Every thread reserving one unit at a time of the same hot item: the striped
+ * stock used at order submission against a single compare-and-set counter
+ * and a lock. A reservation that finds the stock empty tops it up, standing
+ * in for a lease. Runs on every core by default; compare with {@code -t 1}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(Threads.MAX)
+@State(Scope.Benchmark)
+public class InventoryBenchmark {
+
+    private static final long LEASE = 1_000_000;
+
+    private StripedStock striped;
+
+    private AtomicLong single;
+
+    private long locked;
+
+    @Setup
+    public void setUp() {
+        striped = new StripedStock(Runtime.getRuntime().availableProcessors());
+        striped.deposit(LEASE);
+        single = new AtomicLong(LEASE);
+        locked = LEASE;
+    }
+
+    @Benchmark
+    public boolean striped() {
+        if (striped.tryReserve(1)) {
+            return true;
+        }
+        striped.deposit(LEASE);
+        return false;
+    }
+
+    @Benchmark
+    public boolean singleCounter() {
+        while (true) {
+            long current = single.get();
+            if (current < 1) {
+                single.addAndGet(LEASE);
+                return false;
+            }
+            if (single.compareAndSet(current, current - 1)) {
+                return true;
+            }
+        }
+    }
+
+    @Benchmark
+    public synchronized boolean lock() {
+        if (locked < 1) {
+            locked += LEASE;
+            return false;
+        }
+        locked--;
+        return true;
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.demo.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.responses.CartView;
+import com.example.demo.model.responses.OrderView;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * Response serialization of the cart, user and order, using an object mapper
+ * configured the way Spring MVC configures its own. Carts and orders are
+ * written as the CartView and OrderView the controllers return, built from
+ * the entity inside the measurement as they are per request; users are still
+ * returned as the entity.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JacksonBenchmark {
+
+    @Param({ "1", "10", "100" })
+    public int lines;
+
+    private ObjectWriter cartWriter;
+
+    private ObjectWriter userWriter;
+
+    private ObjectWriter orderWriter;
+
+    private Cart cart;
+
+    private User user;
+
+    private UserOrder order;
+
+    @Setup
+    public void setUp() {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+        cartWriter = builder.build().writerFor(CartView.class);
+        userWriter = builder.build().writerFor(User.class);
+        orderWriter = builder.build().writerFor(OrderView.class);
+        cart = Fixtures.cart(lines, 2);
+        user = cart.getUser();
+        order = UserOrder.createFromCart(cart);
+        order.setId(1L);
+    }
+
+    @Benchmark
+    public byte[] cart() throws JsonProcessingException {
+        return cartWriter.writeValueAsBytes(CartView.of(cart));
+    }
+
+    @Benchmark
+    public byte[] user() throws JsonProcessingException {
+        return userWriter.writeValueAsBytes(user);
+    }
+
+    @Benchmark
+    public byte[] order() throws JsonProcessingException {
+        return orderWriter.writeValueAsBytes(OrderView.of(order));
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.demo.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.demo.security.AuthenticatedUser;
+import com.example.demo.security.JWTTokens;
+
+/**
+ * Token signing as done after a successful login, and verification as done
+ * on every authenticated request when the token is not already cached.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtBenchmark {
+
+    private String token;
+
+    @Setup
+    public void setUp() {
+        token = JWTTokens.create("benchmark-user", 1L, 1L);
+    }
+
+    @Benchmark
+    public String sign() {
+        return JWTTokens.create("benchmark-user", 1L, 1L);
+    }
+
+    @Benchmark
+    public AuthenticatedUser verify() {
+        return JWTTokens.toPrincipal(JWTTokens.verify(token));
+    }
+}
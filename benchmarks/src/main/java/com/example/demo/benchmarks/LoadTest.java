@@ -0,0 +1,278 @@
+package com.example.demo.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.demo.SareetaApplication;
+
+/**
+ * End-to-end load test. Boots the application on a random port against its
+ * embedded H2 database (or targets {@code -Dload.url}) and runs
+ * {@code -Dload.users} virtual users, each repeatedly creating a user,
+ * logging in, and then adding to the cart, submitting an order and reading
+ * the order history {@code -Dload.orders-per-user} times.
+ *
+ * Requests are issued at a fixed {@code -Dload.rate} per second, spread
+ * evenly over the users, rather than as fast as responses come back. Each
+ * latency is measured from when its request was due, not from when it was
+ * sent, so a stall is charged to every request it held up instead of to one
+ * (coordinated omission). Latencies are recorded per endpoint after
+ * {@code -Dload.warmup} seconds and reported as throughput plus
+ * p50/p99/p99.9, with the full HdrHistogram percentile distribution written
+ * to {@code -Dload.output}.
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar com.example.demo.benchmarks.LoadTest
+ * </pre>
+ */
+public final class LoadTest {
+
+    private static final String PASSWORD = "load-test-password";
+
+    private static final long[] ITEM_IDS = { 1L, 2L };
+
+    private final String baseUrl;
+
+    private final Map<String, Endpoint> endpoints = new LinkedHashMap<>();
+
+    private volatile boolean running = true;
+
+    private volatile boolean recording;
+
+    private LoadTest(String baseUrl) {
+        this.baseUrl = baseUrl;
+        for (String name : new String[] { "create-user", "login", "add-to-cart", "submit-order", "order-history" }) {
+            endpoints.put(name, new Endpoint());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int users = Integer.getInteger("load.users", 50);
+        int rate = Integer.getInteger("load.rate", 200);
+        int durationSeconds = Integer.getInteger("load.duration", 60);
+        int warmupSeconds = Integer.getInteger("load.warmup", 10);
+        int ordersPerUser = Integer.getInteger("load.orders-per-user", 20);
+        File output = new File(System.getProperty("load.output", "load-results"));
+        String url = System.getProperty("load.url");
+
+        ConfigurableApplicationContext context = null;
+        if (url == null) {
+            // Every virtual user logs in from the same address; keep the login
+            // limiter out of the way unless the caller configures it.
+            defaultProperty("security.login.per-client.per-minute", "100000000");
+            defaultProperty("security.login.per-client.burst", "100000");
+            defaultProperty("server.port", "0");
+            defaultProperty("logging.level.root", "WARN");
+            context = SpringApplication.run(SareetaApplication.class, args);
+            url = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        }
+
+        LoadTest test = new LoadTest(url);
+        try {
+            test.run(users, rate, warmupSeconds, durationSeconds, ordersPerUser);
+            test.report(durationSeconds, System.out);
+            test.write(output);
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+        }
+    }
+
+    private static void defaultProperty(String key, String value) {
+        if (System.getProperty(key) == null) {
+            System.setProperty(key, value);
+        }
+    }
+
+    private void run(int users, int rate, int warmupSeconds, int durationSeconds, int ordersPerUser)
+            throws InterruptedException {
+        long runId = System.currentTimeMillis();
+        long intervalNanos = TimeUnit.SECONDS.toNanos(users) / rate;
+        List<Thread> threads = new ArrayList<>(users);
+        for (int i = 0; i < users; i++) {
+            String prefix = "vu-" + runId + "-" + i + "-";
+            Schedule schedule = new Schedule(intervalNanos);
+            Thread thread = new Thread(() -> virtualUser(prefix, ordersPerUser, schedule), prefix + "thread");
+            thread.setDaemon(true);
+            threads.add(thread);
+            thread.start();
+        }
+        TimeUnit.SECONDS.sleep(warmupSeconds);
+        recording = true;
+        TimeUnit.SECONDS.sleep(durationSeconds);
+        recording = false;
+        running = false;
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.SECONDS.toMillis(30));
+        }
+    }
+
+    private void virtualUser(String prefix, int ordersPerUser, Schedule schedule) {
+        for (int session = 0; running; session++) {
+            String username = prefix + session;
+            try {
+                call("create-user", schedule, "POST", "/api/user/create", null, "{\"username\":\"" + username
+                        + "\",\"password\":\"" + PASSWORD + "\",\"confirmPassword\":\"" + PASSWORD + "\"}");
+                String token = call("login", schedule, "POST", "/login", null,
+                        "{\"username\":\"" + username + "\",\"password\":\"" + PASSWORD + "\"}");
+                if (token == null) {
+                    continue;
+                }
+                for (int order = 0; order < ordersPerUser && running; order++) {
+                    long itemId = ITEM_IDS[ThreadLocalRandom.current().nextInt(ITEM_IDS.length)];
+                    int quantity = 1 + ThreadLocalRandom.current().nextInt(3);
+                    call("add-to-cart", schedule, "POST", "/api/cart/addToCart", token, "{\"username\":\"" + username
+                            + "\",\"itemId\":" + itemId + ",\"quantity\":" + quantity + "}");
+                    call("submit-order", schedule, "POST", "/api/order/submit/" + username, token, null);
+                    call("order-history", schedule, "GET", "/api/order/history/" + username, token, null);
+                }
+            } catch (IOException e) {
+                // Already counted as an error against the endpoint.
+            }
+        }
+    }
+
+    /**
+     * Performs one request when the schedule says it is due and records its
+     * latency from then.
+     *
+     * @return the Authorization header of the response, if any
+     */
+    private String call(String endpoint, Schedule schedule, String method, String path, String token, String body)
+            throws IOException {
+        Endpoint stats = endpoints.get(endpoint);
+        long start = schedule.awaitNext();
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+        int status;
+        try {
+            connection.setRequestMethod(method);
+            if (token != null) {
+                connection.setRequestProperty("Authorization", token);
+            }
+            if (body != null) {
+                connection.setDoOutput(true);
+                connection.setRequestProperty("Content-Type", "application/json");
+                try (OutputStream out = connection.getOutputStream()) {
+                    out.write(body.getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            status = connection.getResponseCode();
+            drain(status < 400 ? connection.getInputStream() : connection.getErrorStream());
+        } catch (IOException e) {
+            if (recording) {
+                stats.errors.increment();
+            }
+            throw e;
+        }
+        if (recording) {
+            stats.latency.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+            (status < 400 ? stats.ok : stats.errors).increment();
+        }
+        if (status >= 400) {
+            throw new IOException(endpoint + " returned " + status);
+        }
+        return connection.getHeaderField("Authorization");
+    }
+
+    // Reading the body to the end lets the connection be reused.
+    private static void drain(InputStream in) throws IOException {
+        if (in == null) {
+            return;
+        }
+        try (InputStream body = in) {
+            byte[] buffer = new byte[8192];
+            while (body.read(buffer) != -1) {
+                // discard
+            }
+        }
+    }
+
+    private void report(int durationSeconds, PrintStream out) {
+        out.printf("%-14s %10s %8s %10s %10s %10s %10s%n",
+                "endpoint", "req/s", "errors", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Map.Entry<String, Endpoint> entry : endpoints.entrySet()) {
+            Endpoint stats = entry.getValue();
+            Histogram h = stats.latency;
+            out.printf("%-14s %10.1f %8d %10.2f %10.2f %10.2f %10.2f%n",
+                    entry.getKey(),
+                    (stats.ok.sum() + stats.errors.sum()) / (double) durationSeconds,
+                    stats.errors.sum(),
+                    h.getValueAtPercentile(50) / 1000.0,
+                    h.getValueAtPercentile(99) / 1000.0,
+                    h.getValueAtPercentile(99.9) / 1000.0,
+                    h.getMaxValue() / 1000.0);
+        }
+    }
+
+    private void write(File output) throws IOException {
+        if (!output.isDirectory() && !output.mkdirs()) {
+            throw new IOException("Cannot create " + output);
+        }
+        for (Map.Entry<String, Endpoint> entry : endpoints.entrySet()) {
+            try (PrintStream out = new PrintStream(new File(output, entry.getKey() + ".hgrm"), "UTF-8")) {
+                // Recorded in microseconds, reported in milliseconds.
+                entry.getValue().latency.outputPercentileDistribution(out, 1000.0);
+            }
+        }
+        System.out.println("Percentile distributions written to " + output.getAbsolutePath());
+    }
+
+    /**
+     * When one virtual user's requests are due: every {@code intervalNanos},
+     * starting at a random offset so users do not fire together. A user that
+     * has fallen behind sends at once and keeps the original due times.
+     */
+    private static final class Schedule {
+
+        private final long intervalNanos;
+
+        private long next;
+
+        private Schedule(long intervalNanos) {
+            this.intervalNanos = intervalNanos;
+            this.next = System.nanoTime() + ThreadLocalRandom.current().nextLong(intervalNanos);
+        }
+
+        private long awaitNext() {
+            long due = next;
+            next += intervalNanos;
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return due;
+        }
+    }
+
+    private static final class Endpoint {
+
+        private final Histogram latency = new ConcurrentHistogram(3);
+
+        private final LongAdder ok = new LongAdder();
+
+        private final LongAdder errors = new LongAdder();
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.demo.benchmarks;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.demo.model.Money;
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.Item;
+
+/**
+ * Cart totals computed the way {@link Cart} used to (one {@link BigDecimal}
+ * per unit added or removed) against minor-unit {@code long} arithmetic.
+ * Run with {@code -prof gc} to compare allocation rates.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MoneyBenchmark {
+
+    @Param({ "10", "100", "1000" })
+    public int units;
+
+    private BigDecimal[] prices;
+
+    private long[] minorPrices;
+
+    private Item[] items;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        prices = new BigDecimal[units];
+        minorPrices = new long[units];
+        items = new Item[units];
+        for (int i = 0; i < units; i++) {
+            prices[i] = BigDecimal.valueOf(random.nextInt(10_000), 2);
+            minorPrices[i] = Money.toMinor(prices[i]);
+            Item item = new Item();
+            item.setId((long) (i % 20));
+            item.setName("Item " + i);
+            item.setPrice(prices[i % 20]);
+            items[i] = item;
+        }
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimalAddRemove() {
+        BigDecimal total = new BigDecimal(0);
+        for (BigDecimal price : prices) {
+            total = total.add(price);
+        }
+        for (int i = 0; i < prices.length / 2; i++) {
+            total = total.subtract(prices[i]);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long minorUnitAddRemove() {
+        long total = 0;
+        for (long price : minorPrices) {
+            total = Money.add(total, price);
+        }
+        for (int i = 0; i < minorPrices.length / 2; i++) {
+            total = Money.add(total, -minorPrices[i]);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public BigDecimal cartAddRemove() {
+        Cart cart = new Cart();
+        for (Item item : items) {
+            cart.addItem(item);
+        }
+        for (int i = 0; i < items.length / 2; i++) {
+            cart.removeItem(items[i]);
+        }
+        return cart.getTotal();
+    }
+}
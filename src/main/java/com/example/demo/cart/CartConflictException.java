@@ -0,0 +1,16 @@
+package com.example.demo.cart;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when a cart update kept losing to concurrent updates of the same
+ * cart. Surfaces as 409 so the client can retry.
+ */
+@ResponseStatus(HttpStatus.CONFLICT)
+public class CartConflictException extends RuntimeException {
+
+    public CartConflictException(Throwable cause) {
+        super("Cart was modified concurrently", cause);
+    }
+}
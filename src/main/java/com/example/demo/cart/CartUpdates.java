@@ -0,0 +1,115 @@
+package com.example.demo.cart;
+
+import java.sql.SQLException;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Runs a cart read-modify-write in its own transaction and re-runs it when a
+ * concurrent update to the same cart gets in its way.
+ *
+ * Updates of one cart run one at a time in this process: they hold a lock,
+ * striped by the cart's key, from before their transaction starts until
+ * after it commits. H2's MVStore can release row locks before a commit is
+ * visible, so its row lock alone still lets an update read stale lines.
+ * Updates are also expected to read the cart with
+ * {@code CartRepository.lockForUpdate}, which queues writers in other
+ * processes. The version check, a lock wait that times out and a concurrent
+ * insert of the same new line re-run the update; other integrity violations
+ * are bugs, not races, and fail straight away.
+ */
+@Component
+public class CartUpdates {
+
+    private static final int STRIPES = 64;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final int maxAttempts;
+
+    private final Counter retries;
+
+    private final Counter exhausted;
+
+    private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+
+    public CartUpdates(PlatformTransactionManager transactionManager,
+                       @Value("${cart.update.max-attempts:10}") int maxAttempts,
+                       MeterRegistry registry) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxAttempts = maxAttempts;
+        this.retries = Counter.builder("cart.update.retries").register(registry);
+        this.exhausted = Counter.builder("cart.update.exhausted").register(registry);
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * @param cartKey anything that identifies the cart, such as its owner's
+     *                username; updates with equal keys never overlap
+     * @throws CartConflictException if every attempt lost to a concurrent update
+     */
+    public <T> T execute(Object cartKey, Supplier<T> update) {
+        ReentrantLock lock = locks[Math.floorMod(Objects.hashCode(cartKey), STRIPES)];
+        lock.lock();
+        try {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    return transactionTemplate.execute(status -> update.get());
+                } catch (ConcurrencyFailureException | DataIntegrityViolationException e) {
+                    if (e instanceof DataIntegrityViolationException && !isDuplicateKey(e)) {
+                        throw e;
+                    }
+                    if (attempt >= maxAttempts) {
+                        exhausted.increment();
+                        throw new CartConflictException(e);
+                    }
+                    retries.increment();
+                    backOff(attempt);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // The only unique key a cart update writes to is the (cart, item) key of
+    // its lines. JPA does not translate to DuplicateKeyException, so the
+    // standard unique-violation SQL state is checked as well.
+    private static boolean isDuplicateKey(RuntimeException e) {
+        if (e instanceof DuplicateKeyException) {
+            return true;
+        }
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException && "23505".equals(((SQLException) cause).getSQLState())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // A short random pause spreads out threads that collided, so they do not
+    // collide again on the next attempt.
+    private static void backOff(int attempt) {
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextInt(1 + Math.min(attempt, 10) * 2));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CartConflictException(e);
+        }
+    }
+}
@@ -0,0 +1,348 @@
+package com.example.demo.cart;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.model.CartContents;
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.CartItem;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.repositories.CartRepository;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.model.responses.CartView;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Keeps active carts in memory and writes them back to the cart tables in
+ * batches.
+ *
+ * Carts are loaded from the database on first use and spread over shards by
+ * id; each shard tracks which of its carts changed since they were last
+ * written. Changes to one cart are serialized on the cart itself, so updates
+ * of different carts never wait for each other. A writer thread flushes dirty
+ * carts every {@code cart.store.flush-interval-ms}, coalescing however many
+ * changes a cart saw into one write, and drops carts idle for
+ * {@code cart.store.idle-ms} once they are clean. Checkout flushes the cart
+ * first so the order is built from what the client last saw. Changes not yet
+ * flushed are lost if the process dies; a clean shutdown flushes everything.
+ */
+@Component
+@ConditionalOnProperty(name = "cart.store.mode", havingValue = "memory")
+public class InMemoryCartStore {
+
+    private static final Logger log = LoggerFactory.getLogger(InMemoryCartStore.class);
+
+    private final Shard[] shards;
+
+    private final CartRepository cartRepository;
+
+    private final ItemRepository itemRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final int batchSize;
+
+    private final long flushIntervalMillis;
+
+    private final long idleMillis;
+
+    // Keeps two flushes from writing the same cart out of order.
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private final DistributionSummary batchSizes;
+
+    private final Timer flushTimer;
+
+    private final Thread writer;
+
+    private volatile boolean running = true;
+
+    public InMemoryCartStore(CartRepository cartRepository,
+                             ItemRepository itemRepository,
+                             PlatformTransactionManager transactionManager,
+                             MeterRegistry registry,
+                             @Value("${cart.store.shards:16}") int shardCount,
+                             @Value("${cart.store.batch-size:100}") int batchSize,
+                             @Value("${cart.store.flush-interval-ms:1000}") long flushIntervalMillis,
+                             @Value("${cart.store.idle-ms:1800000}") long idleMillis) {
+        this.cartRepository = cartRepository;
+        this.itemRepository = itemRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard();
+        }
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.idleMillis = idleMillis;
+        this.batchSizes = DistributionSummary.builder("cart.store.flush.size").register(registry);
+        this.flushTimer = Timer.builder("cart.store.flush").register(registry);
+        registry.gauge("cart.store.size", this, InMemoryCartStore::size);
+        registry.gauge("cart.store.dirty", this, InMemoryCartStore::dirtyCount);
+        this.writer = new Thread(this::run, "cart-write-behind");
+        this.writer.setDaemon(true);
+    }
+
+    @PostConstruct
+    public void start() {
+        writer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(30));
+        flushAll();
+    }
+
+    /**
+     * Applies the change to the cart and returns the result.
+     *
+     * @return the updated cart, or {@code null} if there is no such cart
+     */
+    public CartView update(long cartId, Consumer<? super CartContents> change) {
+        Shard shard = shard(cartId);
+        while (true) {
+            MemoryCart cart = load(shard, cartId);
+            if (cart == null) {
+                return null;
+            }
+            synchronized (cart) {
+                // Evicted between the lookup and the lock; load it again.
+                if (cart.isEvicted()) {
+                    continue;
+                }
+                change.accept(cart);
+                cart.touch(System.currentTimeMillis());
+                shard.dirty.add(cartId);
+                return cart.toView();
+            }
+        }
+    }
+
+    /**
+     * Writes the cart back now if it has unflushed changes.
+     */
+    public void flush(long cartId) {
+        if (shard(cartId).dirty.contains(cartId)) {
+            flush(Collections.singleton(cartId));
+        }
+    }
+
+    public void flushAll() {
+        for (Shard shard : shards) {
+            flush(new ArrayList<>(shard.dirty));
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Shard shard : shards) {
+            size += shard.carts.size();
+        }
+        return size;
+    }
+
+    public int dirtyCount() {
+        int dirty = 0;
+        for (Shard shard : shards) {
+            dirty += shard.dirty.size();
+        }
+        return dirty;
+    }
+
+    private Shard shard(long cartId) {
+        return shards[(int) Math.floorMod(cartId ^ (cartId >>> 32), (long) shards.length)];
+    }
+
+    private MemoryCart load(Shard shard, long cartId) {
+        MemoryCart cart = shard.carts.get(cartId);
+        if (cart != null) {
+            return cart;
+        }
+        // Loaded outside the map so a slow query does not block the shard; if
+        // two threads race, the first one in wins and the other copy is dropped.
+        MemoryCart loaded = transactionTemplate.execute(status ->
+                cartRepository.findById(cartId).map(MemoryCart::of).orElse(null));
+        if (loaded == null) {
+            return null;
+        }
+        loaded.touch(System.currentTimeMillis());
+        cart = shard.carts.putIfAbsent(cartId, loaded);
+        return cart == null ? loaded : cart;
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                Thread.sleep(flushIntervalMillis);
+                flushAll();
+                evictIdle(System.currentTimeMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Cart writer failed", e);
+            }
+        }
+    }
+
+    private void flush(Collection<Long> cartIds) {
+        if (cartIds.isEmpty()) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            List<MemoryCart.Snapshot> batch = new ArrayList<>(Math.min(batchSize, cartIds.size()));
+            for (Long cartId : cartIds) {
+                Shard shard = shard(cartId);
+                MemoryCart cart = shard.carts.get(cartId);
+                // Cleared before the snapshot is taken, so a change made after
+                // it marks the cart dirty again for the next flush.
+                if (cart == null || !shard.dirty.remove(cartId)) {
+                    continue;
+                }
+                synchronized (cart) {
+                    batch.add(cart.snapshot());
+                }
+                if (batch.size() == batchSize) {
+                    write(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                write(batch);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void write(List<MemoryCart.Snapshot> batch) {
+        batchSizes.record(batch.size());
+        long start = System.nanoTime();
+        try {
+            transactionTemplate.execute(status -> {
+                persist(batch);
+                return null;
+            });
+        } catch (RuntimeException e) {
+            // Left dirty so the next flush tries again.
+            for (MemoryCart.Snapshot snapshot : batch) {
+                shard(snapshot.cartId).dirty.add(snapshot.cartId);
+            }
+            throw e;
+        } finally {
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // One query for the carts with their lines and one for items that are new
+    // to a cart; the updates then go out as JDBC batches.
+    private void persist(List<MemoryCart.Snapshot> batch) {
+        List<Long> cartIds = new ArrayList<>(batch.size());
+        for (MemoryCart.Snapshot snapshot : batch) {
+            cartIds.add(snapshot.cartId);
+        }
+        Map<Long, Cart> carts = new HashMap<>();
+        for (Cart cart : cartRepository.findByIdIn(cartIds)) {
+            carts.put(cart.getId(), cart);
+        }
+        Set<Long> newItemIds = new HashSet<>();
+        for (MemoryCart.Snapshot snapshot : batch) {
+            Cart cart = carts.get(snapshot.cartId);
+            for (MemoryCart.Line line : snapshot.lines) {
+                if (cart != null && cart.getQuantity(line.itemId) == 0) {
+                    newItemIds.add(line.itemId);
+                }
+            }
+        }
+        Map<Long, Item> items = new HashMap<>();
+        if (!newItemIds.isEmpty()) {
+            for (Item item : itemRepository.findAllById(newItemIds)) {
+                items.put(item.getId(), item);
+            }
+        }
+        for (MemoryCart.Snapshot snapshot : batch) {
+            Cart cart = carts.get(snapshot.cartId);
+            if (cart == null) {
+                continue;
+            }
+            Set<Long> itemIds = new HashSet<>();
+            for (MemoryCart.Line line : snapshot.lines) {
+                itemIds.add(line.itemId);
+            }
+            cart.retainItems(itemIds);
+            for (MemoryCart.Line line : snapshot.lines) {
+                Item item = items.get(line.itemId);
+                if (item == null) {
+                    item = existingItem(cart, line.itemId);
+                }
+                if (item != null) {
+                    cart.putLine(item, line.quantity, line.unitPrice);
+                }
+            }
+            cart.setTotalMinor(snapshot.total);
+        }
+    }
+
+    private static Item existingItem(Cart cart, long itemId) {
+        return cart.getLines().stream()
+                .map(CartItem::getItem)
+                .filter(item -> item.getId() == itemId)
+                .findFirst()
+                .orElse(null);
+    }
+
+    // Only clean carts are dropped; they are reloaded from the database on
+    // next use. Holding the flush lock means no write of a cart that was just
+    // marked clean is still in flight when it goes.
+    private void evictIdle(long now) {
+        flushLock.lock();
+        try {
+            for (Shard shard : shards) {
+                for (MemoryCart cart : shard.carts.values()) {
+                    synchronized (cart) {
+                        if (now - cart.getLastAccess() >= idleMillis && !shard.dirty.contains(cart.getId())) {
+                            cart.evict();
+                            shard.carts.remove(cart.getId(), cart);
+                        }
+                    }
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private static final class Shard {
+
+        private final ConcurrentHashMap<Long, MemoryCart> carts = new ConcurrentHashMap<>();
+
+        private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+    }
+}
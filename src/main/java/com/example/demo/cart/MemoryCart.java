@@ -0,0 +1,152 @@
+package com.example.demo.cart;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.example.demo.model.CartContents;
+import com.example.demo.model.Money;
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.CartItem;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.responses.CartView;
+import com.example.demo.model.responses.LineView;
+
+/**
+ * A cart held by {@link InMemoryCartStore}: the same lines and total as the
+ * entity, without the entity. Not thread-safe; the store synchronizes on it.
+ */
+final class MemoryCart implements CartContents {
+
+    private final long id;
+
+    private final Map<Long, Line> lines = new LinkedHashMap<>();
+
+    // Minor units; see Money.
+    private long total;
+
+    private long lastAccess;
+
+    private boolean evicted;
+
+    private MemoryCart(long id) {
+        this.id = id;
+    }
+
+    static MemoryCart of(Cart cart) {
+        MemoryCart memory = new MemoryCart(cart.getId());
+        for (CartItem line : cart.getLines()) {
+            memory.lines.put(line.getItem().getId(), new Line(line.getItem().getId(), line.getItem().getName(),
+                    line.getUnitPriceMinor(), line.getQuantity()));
+        }
+        memory.total = cart.getTotalMinor();
+        return memory;
+    }
+
+    @Override
+    public void addItem(Item item, int quantity) {
+        if (quantity <= 0) {
+            return;
+        }
+        Line line = lines.computeIfAbsent(item.getId(),
+                itemId -> new Line(itemId, item.getName(), Money.toMinor(item.getPrice()), 0));
+        line.quantity += quantity;
+        total = Money.add(total, Money.times(line.unitPrice, quantity));
+    }
+
+    @Override
+    public void removeItem(Item item, int quantity) {
+        Line line = lines.get(item.getId());
+        if (line == null || quantity <= 0) {
+            return;
+        }
+        int removed = Math.min(quantity, line.quantity);
+        line.quantity -= removed;
+        if (line.quantity == 0) {
+            lines.remove(item.getId());
+        }
+        total = Money.add(total, -Money.times(line.unitPrice, removed));
+    }
+
+    @Override
+    public void setQuantity(Item item, int quantity) {
+        Line line = lines.get(item.getId());
+        int delta = quantity - (line == null ? 0 : line.quantity);
+        if (delta > 0) {
+            addItem(item, delta);
+        } else if (delta < 0) {
+            removeItem(item, -delta);
+        }
+    }
+
+    long getId() {
+        return id;
+    }
+
+    long getLastAccess() {
+        return lastAccess;
+    }
+
+    void touch(long now) {
+        lastAccess = now;
+    }
+
+    boolean isEvicted() {
+        return evicted;
+    }
+
+    void evict() {
+        evicted = true;
+    }
+
+    CartView toView() {
+        List<LineView> views = new ArrayList<>(lines.size());
+        for (Line line : lines.values()) {
+            views.add(new LineView(line.itemId, line.name, line.unitPrice, line.quantity));
+        }
+        return new CartView(id, views, total);
+    }
+
+    // Copies the current state for writing back outside the lock.
+    Snapshot snapshot() {
+        List<Line> copy = new ArrayList<>(lines.size());
+        for (Line line : lines.values()) {
+            copy.add(new Line(line.itemId, line.name, line.unitPrice, line.quantity));
+        }
+        return new Snapshot(id, copy, total);
+    }
+
+    static final class Line {
+
+        final long itemId;
+
+        final String name;
+
+        final long unitPrice;
+
+        int quantity;
+
+        private Line(long itemId, String name, long unitPrice, int quantity) {
+            this.itemId = itemId;
+            this.name = name;
+            this.unitPrice = unitPrice;
+            this.quantity = quantity;
+        }
+    }
+
+    static final class Snapshot {
+
+        final long cartId;
+
+        final List<Line> lines;
+
+        final long total;
+
+        private Snapshot(long cartId, List<Line> lines, long total) {
+            this.cartId = cartId;
+            this.lines = lines;
+            this.total = total;
+        }
+    }
+}
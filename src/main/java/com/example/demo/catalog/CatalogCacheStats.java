@@ -0,0 +1,55 @@
+package com.example.demo.catalog;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class CatalogCacheStats {
+
+    @JsonProperty
+    private final long hits;
+
+    @JsonProperty
+    private final long misses;
+
+    @JsonProperty
+    private final long evictions;
+
+    @JsonProperty
+    private final int size;
+
+    @JsonProperty
+    private final int maxSize;
+
+    public CatalogCacheStats(long hits, long misses, long evictions, int size, int maxSize) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.size = size;
+        this.maxSize = maxSize;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    @JsonProperty
+    public double getHitRatio() {
+        long requests = hits + misses;
+        return requests == 0 ? 0.0 : (double) hits / requests;
+    }
+}
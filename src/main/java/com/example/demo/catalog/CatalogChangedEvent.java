@@ -0,0 +1,26 @@
+package com.example.demo.catalog;
+
+/**
+ * Published whenever items are written. A {@code null} item id means the whole
+ * catalog may have changed.
+ */
+public class CatalogChangedEvent {
+
+    private final Long itemId;
+
+    public CatalogChangedEvent(Long itemId) {
+        this.itemId = itemId;
+    }
+
+    public static CatalogChangedEvent all() {
+        return new CatalogChangedEvent(null);
+    }
+
+    public Long getItemId() {
+        return itemId;
+    }
+
+    public boolean isFullInvalidation() {
+        return itemId == null;
+    }
+}
@@ -0,0 +1,362 @@
+package com.example.demo.catalog;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.model.responses.ImportReport;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Upserts items from a supplier feed, matching rows to items by SKU.
+ *
+ * The feed is read one row at a time and written in chunks of
+ * {@code catalog.import.chunk-size}, each in its own transaction, after which
+ * the persistence context is cleared; memory use therefore depends on the
+ * chunk size, not the feed size. Rows that fail validation are reported and
+ * skipped. A chunk the database rejects is retried row by row so only the
+ * offending rows are lost. Per-item change events are suppressed while
+ * importing and the catalog is invalidated once at the end.
+ */
+@Service
+public class CatalogImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogImportService.class);
+
+    private static final int MAX_LENGTH = 255;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final ItemRepository itemRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ApplicationEventPublisher publisher;
+
+    private final ObjectReader jsonReader;
+
+    private final int chunkSize;
+
+    private final int maxErrors;
+
+    private final Counter rowsWritten;
+
+    private final Counter rowsRejected;
+
+    public CatalogImportService(ItemRepository itemRepository,
+                                PlatformTransactionManager transactionManager,
+                                ApplicationEventPublisher publisher,
+                                ObjectMapper objectMapper,
+                                MeterRegistry registry,
+                                @Value("${catalog.import.chunk-size:500}") int chunkSize,
+                                @Value("${catalog.import.max-errors:1000}") int maxErrors) {
+        this.itemRepository = itemRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.publisher = publisher;
+        this.jsonReader = objectMapper.reader().with(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+        this.chunkSize = chunkSize;
+        this.maxErrors = maxErrors;
+        this.rowsWritten = Counter.builder("catalog.import.rows").tag("outcome", "written").register(registry);
+        this.rowsRejected = Counter.builder("catalog.import.rows").tag("outcome", "rejected").register(registry);
+    }
+
+    /**
+     * Imports CSV with a header row naming the columns {@code sku},
+     * {@code name}, {@code price} and optionally {@code description}, in any
+     * order.
+     */
+    public ImportReport importCsv(Reader in) throws IOException {
+        CsvReader csv = new CsvReader(new BufferedReader(in));
+        ImportReport report = new ImportReport(maxErrors);
+        List<String> header;
+        try {
+            header = csv.next();
+        } catch (IllegalArgumentException e) {
+            report.reject(1, e.getMessage());
+            return report;
+        }
+        if (header == null) {
+            return report;
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        for (String required : new String[] { "sku", "name", "price" }) {
+            if (!columns.containsKey(required)) {
+                report.reject(csv.getLine(), "Missing column " + required);
+                return report;
+            }
+        }
+        return run(report, () -> {
+            List<String> fields;
+            try {
+                fields = csv.next();
+            } catch (IllegalArgumentException e) {
+                // Nothing after an unterminated quote can be trusted.
+                ImportRow row = new ImportRow(csv.getLine());
+                row.error = e.getMessage();
+                row.fatal = true;
+                return row;
+            }
+            if (fields == null) {
+                return null;
+            }
+            ImportRow row = new ImportRow(csv.getLine());
+            row.sku = field(fields, columns.get("sku"));
+            row.name = field(fields, columns.get("name"));
+            row.description = field(fields, columns.get("description"));
+            String price = field(fields, columns.get("price"));
+            try {
+                row.price = price == null || price.isEmpty() ? null : new BigDecimal(price);
+            } catch (NumberFormatException e) {
+                row.error = "Invalid price '" + price + "'";
+            }
+            return row;
+        });
+    }
+
+    /**
+     * Imports newline-delimited JSON objects with the fields {@code sku},
+     * {@code name}, {@code price} and optionally {@code description}.
+     */
+    public ImportReport importNdjson(Reader in) throws IOException {
+        BufferedReader lines = new BufferedReader(in);
+        long[] lineNumber = { 0 };
+        return run(new ImportReport(maxErrors), () -> {
+            String line;
+            do {
+                line = lines.readLine();
+                lineNumber[0]++;
+            } while (line != null && line.trim().isEmpty());
+            if (line == null) {
+                return null;
+            }
+            ImportRow row = new ImportRow(lineNumber[0]);
+            try {
+                JsonNode node = jsonReader.readTree(line);
+                row.sku = text(node, "sku");
+                row.name = text(node, "name");
+                row.description = text(node, "description");
+                JsonNode price = node.get("price");
+                if (price != null && !price.isNull()) {
+                    try {
+                        row.price = price.isNumber() ? price.decimalValue() : new BigDecimal(price.asText().trim());
+                    } catch (NumberFormatException e) {
+                        row.error = "Invalid price '" + price.asText() + "'";
+                    }
+                }
+            } catch (JsonProcessingException e) {
+                row.error = "Malformed JSON: " + e.getOriginalMessage();
+            }
+            return row;
+        });
+    }
+
+    private ImportReport run(ImportReport report, RowSource source) throws IOException {
+        Map<String, ImportRow> chunk = new LinkedHashMap<>();
+        try {
+            ImportRow row;
+            while ((row = source.next()) != null) {
+                report.row();
+                String error = row.error != null ? row.error : validate(row);
+                if (error != null) {
+                    reject(report, row.line, error);
+                    if (row.fatal) {
+                        break;
+                    }
+                    continue;
+                }
+                // A SKU repeated within a chunk is written once, with its last values.
+                chunk.put(row.sku, row);
+                if (chunk.size() >= chunkSize) {
+                    write(chunk.values(), report);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                write(chunk.values(), report);
+            }
+        } finally {
+            if (report.getInserted() + report.getUpdated() > 0) {
+                publisher.publishEvent(CatalogChangedEvent.all());
+            }
+        }
+        log.info("Catalog import finished: {} rows, {} inserted, {} updated, {} unchanged, {} rejected",
+                report.getRows(), report.getInserted(), report.getUpdated(), report.getUnchanged(),
+                report.getRejected());
+        return report;
+    }
+
+    private void write(Collection<ImportRow> rows, ImportReport report) {
+        try {
+            int[] counts = transactionTemplate.execute(status -> upsert(rows));
+            record(report, counts);
+        } catch (RuntimeException chunkFailure) {
+            log.warn("Catalog import chunk of {} rows failed, retrying individually", rows.size(), chunkFailure);
+            for (ImportRow row : rows) {
+                try {
+                    record(report, transactionTemplate.execute(status -> upsert(Collections.singletonList(row))));
+                } catch (RuntimeException e) {
+                    reject(report, row.line, NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+                }
+            }
+        }
+        log.info("Catalog import progress: {} rows, {} written, {} rejected", report.getRows(),
+                report.getInserted() + report.getUpdated() + report.getUnchanged(), report.getRejected());
+    }
+
+    // Returns the number of rows inserted, updated and left unchanged.
+    private int[] upsert(Collection<ImportRow> rows) {
+        return ItemEntityListener.withoutEvents(() -> {
+            List<String> skus = new ArrayList<>(rows.size());
+            for (ImportRow row : rows) {
+                skus.add(row.sku);
+            }
+            Map<String, Item> existing = new HashMap<>();
+            for (Item item : itemRepository.findBySkuIn(skus)) {
+                existing.put(item.getSku(), item);
+            }
+            int[] counts = new int[3];
+            List<Item> inserts = new ArrayList<>();
+            for (ImportRow row : rows) {
+                Item item = existing.get(row.sku);
+                String description = row.description == null ? "" : row.description;
+                if (item == null) {
+                    item = new Item();
+                    item.setSku(row.sku);
+                    inserts.add(item);
+                    counts[0]++;
+                } else if (Objects.equals(item.getName(), row.name)
+                        && Objects.equals(item.getDescription(), description)
+                        && item.getPrice() != null && item.getPrice().compareTo(row.price) == 0) {
+                    counts[2]++;
+                    continue;
+                } else {
+                    counts[1]++;
+                }
+                item.setName(row.name);
+                item.setDescription(description);
+                item.setPrice(row.price);
+            }
+            itemRepository.saveAll(inserts);
+            entityManager.flush();
+            entityManager.clear();
+            return counts;
+        });
+    }
+
+    private void record(ImportReport report, int[] counts) {
+        for (int i = 0; i < counts[0]; i++) {
+            report.inserted();
+        }
+        for (int i = 0; i < counts[1]; i++) {
+            report.updated();
+        }
+        for (int i = 0; i < counts[2]; i++) {
+            report.unchanged();
+        }
+        rowsWritten.increment(counts[0] + counts[1] + counts[2]);
+    }
+
+    private void reject(ImportReport report, long line, String message) {
+        report.reject(line, message);
+        rowsRejected.increment();
+    }
+
+    private static String validate(ImportRow row) {
+        if (row.sku == null || row.sku.isEmpty()) {
+            return "Missing sku";
+        }
+        if (row.name == null || row.name.isEmpty()) {
+            return "Missing name";
+        }
+        if (row.price == null) {
+            return "Missing price";
+        }
+        if (row.price.signum() < 0) {
+            return "Negative price";
+        }
+        if (row.price.stripTrailingZeros().scale() > 2) {
+            return "Price has more than two decimal places";
+        }
+        if (row.sku.length() > MAX_LENGTH || row.name.length() > MAX_LENGTH
+                || (row.description != null && row.description.length() > MAX_LENGTH)) {
+            return "Field longer than " + MAX_LENGTH + " characters";
+        }
+        return null;
+    }
+
+    private static String field(List<String> fields, Integer index) {
+        if (index == null || index >= fields.size()) {
+            return null;
+        }
+        return fields.get(index).trim();
+    }
+
+    private static String text(JsonNode node, String name) {
+        JsonNode value = node.get(name);
+        return value == null || value.isNull() ? null : value.asText().trim();
+    }
+
+    private interface RowSource {
+
+        /**
+         * Returns the next row, or {@code null} at the end of the feed.
+         */
+        ImportRow next() throws IOException;
+    }
+
+    private static final class ImportRow {
+
+        private final long line;
+
+        private String sku;
+
+        private String name;
+
+        private String description;
+
+        private BigDecimal price;
+
+        private String error;
+
+        private boolean fatal;
+
+        private ImportRow(long line) {
+            this.line = line;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.demo.catalog;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Bounded LRU cache of catalog responses as ready-to-send JSON bytes, plus a
+ * gzipped copy when the JSON is at least
+ * {@code catalog.response-cache.gzip-min-bytes} long.
+ *
+ * Each entry remembers the {@link CatalogVersion} tag it was encoded under
+ * and is only served for that tag, so an item write that advances the
+ * version retires the entry even before the change event below drops it.
+ */
+@Component
+public class CatalogResponseCache {
+
+    private final ObjectMapper objectMapper;
+
+    private final int maxEntries;
+
+    private final int gzipMinBytes;
+
+    private final Map<String, Encoded> entries;
+
+    private final Counter hits;
+
+    private final Counter misses;
+
+    public CatalogResponseCache(ObjectMapper objectMapper,
+                                MeterRegistry registry,
+                                @Value("${catalog.response-cache.max-entries:10000}") int maxEntries,
+                                @Value("${catalog.response-cache.gzip-min-bytes:1024}") int gzipMinBytes) {
+        this.objectMapper = objectMapper;
+        this.maxEntries = maxEntries;
+        this.gzipMinBytes = gzipMinBytes;
+        this.entries = Collections.synchronizedMap(new LinkedHashMap<String, Encoded>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Encoded> eldest) {
+                return size() > CatalogResponseCache.this.maxEntries;
+            }
+        });
+        this.hits = Counter.builder("catalog.response-cache.requests").tag("result", "hit").register(registry);
+        this.misses = Counter.builder("catalog.response-cache.requests").tag("result", "miss").register(registry);
+    }
+
+    /**
+     * Returns the encoded item under the given tag, encoding what {@code item}
+     * supplies on a miss.
+     *
+     * @return the encoded item, or {@code null} if {@code item} supplied none
+     */
+    public Encoded item(long id, String etag, Supplier<?> item) {
+        return get("item:" + id, etag, item);
+    }
+
+    /**
+     * Like {@link #item}, for the listing page after {@code afterId}.
+     */
+    public Encoded page(long afterId, int size, String etag, Supplier<?> page) {
+        return get("page:" + afterId + ":" + size, etag, page);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        if (event.isFullInvalidation()) {
+            entries.clear();
+        } else {
+            entries.remove("item:" + event.getItemId());
+        }
+    }
+
+    private Encoded get(String key, String etag, Supplier<?> body) {
+        Encoded cached = entries.get(key);
+        if (cached != null && cached.etag.equals(etag)) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+        Object value = body.get();
+        if (value == null) {
+            return null;
+        }
+        Encoded encoded = encode(etag, value);
+        entries.put(key, encoded);
+        return encoded;
+    }
+
+    private Encoded encode(String etag, Object value) {
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize " + value.getClass().getSimpleName(), e);
+        }
+        return new Encoded(etag, json, json.length >= gzipMinBytes ? gzip(json) : null);
+    }
+
+    private static byte[] gzip(byte[] json) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Whether an {@code Accept-Encoding} header value allows gzip.
+     */
+    public static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            String name = parts[0].trim();
+            if (!name.equalsIgnoreCase("gzip") && !name.equals("*")) {
+                continue;
+            }
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim().replace(" ", "");
+                if (param.matches("q=0(\\.0{0,3})?")) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    public static final class Encoded {
+
+        private final String etag;
+
+        private final byte[] json;
+
+        private final byte[] gzip;
+
+        private Encoded(String etag, byte[] json, byte[] gzip) {
+            this.etag = etag;
+            this.json = json;
+            this.gzip = gzip;
+        }
+
+        public byte[] getJson() {
+            return json;
+        }
+
+        /**
+         * The gzipped JSON, or {@code null} if the JSON was too short to be
+         * worth compressing.
+         */
+        public byte[] getGzip() {
+            return gzip;
+        }
+    }
+}
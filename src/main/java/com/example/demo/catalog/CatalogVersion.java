@@ -0,0 +1,93 @@
+package com.example.demo.catalog;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Change counters behind the catalog's ETags, advanced by {@link ItemCatalog}
+ * once it has dropped the changed entries, so a tag is never paired with a
+ * body older than itself.
+ *
+ * Item versions are kept in a fixed number of slots by id; items sharing a
+ * slot see each other's changes, which costs a spurious 200 but never a
+ * wrong 304. Listings change whenever any item does. Tags carry the start
+ * time of the process, since the counters restart from zero.
+ */
+@Component
+public class CatalogVersion {
+
+    private static final int SLOTS = 4096;
+
+    private final String instance = Long.toString(System.currentTimeMillis(), 36);
+
+    private final AtomicLong changes = new AtomicLong();
+
+    private final AtomicLong epoch = new AtomicLong();
+
+    private final AtomicLongArray itemVersions = new AtomicLongArray(SLOTS);
+
+    public void itemChanged(long id) {
+        long version = changes.incrementAndGet();
+        itemVersions.accumulateAndGet(slot(id), version, Math::max);
+    }
+
+    public void allChanged() {
+        long version = changes.incrementAndGet();
+        epoch.accumulateAndGet(version, Math::max);
+    }
+
+    public String itemTag(long id) {
+        long version = Math.max(epoch.get(), itemVersions.get(slot(id)));
+        return "\"item-" + id + "-" + instance + "-" + version + "\"";
+    }
+
+    public String listingTag() {
+        return "\"items-" + instance + "-" + changes.get() + "\"";
+    }
+
+    /**
+     * The tag of the gzip-encoded body. Strong tags promise byte-identical
+     * bodies, so the two encodings of one version cannot share a tag.
+     */
+    public static String gzipTag(String etag) {
+        return etag.substring(0, etag.length() - 1) + "-gz\"";
+    }
+
+    /**
+     * Whether an {@code If-None-Match} header value matches the tag of either
+     * encoding, using the weak comparison RFC 7232 prescribes for that header.
+     */
+    public static boolean matches(String ifNoneMatch, String etag) {
+        return matchingTag(ifNoneMatch, etag) != null;
+    }
+
+    /**
+     * The tag, plain or gzip, that an {@code If-None-Match} header value
+     * matched, or null if it matched neither; a 304 repeats it.
+     */
+    public static String matchingTag(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return null;
+        }
+        String gzipTag = gzipTag(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals("*") || candidate.equals(etag)) {
+                return etag;
+            }
+            if (candidate.equals(gzipTag)) {
+                return gzipTag;
+            }
+        }
+        return null;
+    }
+
+    private static int slot(long id) {
+        return (int) ((id ^ (id >>> 32)) & (SLOTS - 1));
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.demo.catalog;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads RFC 4180 records one at a time: comma separated, fields optionally
+ * double-quoted, quotes escaped by doubling, and line breaks allowed inside
+ * quoted fields. Blank lines are skipped.
+ */
+final class CsvReader {
+
+    private final Reader in;
+
+    private final StringBuilder field = new StringBuilder();
+
+    private int pending = -2;
+
+    private long line = 1;
+
+    private long recordLine;
+
+    CsvReader(Reader in) {
+        this.in = in;
+    }
+
+    /**
+     * Returns the next record, or {@code null} at the end of the input.
+     *
+     * @throws IllegalArgumentException if a quoted field is never closed
+     */
+    List<String> next() throws IOException {
+        int c = read();
+        while (c == '\r' || c == '\n') {
+            c = skipLineBreak(c);
+        }
+        if (c == -1) {
+            return null;
+        }
+        recordLine = line;
+        List<String> record = new ArrayList<>();
+        field.setLength(0);
+        boolean quoted = false;
+        while (true) {
+            if (quoted) {
+                if (c == -1) {
+                    throw new IllegalArgumentException("Unterminated quoted field starting on line " + recordLine);
+                }
+                if (c == '"') {
+                    int n = read();
+                    if (n == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        c = n;
+                        continue;
+                    }
+                } else {
+                    if (c == '\n') {
+                        line++;
+                    }
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else if (c == ',') {
+                record.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\r' || c == '\n' || c == -1) {
+                record.add(field.toString());
+                if (c != -1) {
+                    pending = skipLineBreak(c);
+                }
+                return record;
+            } else {
+                field.append((char) c);
+            }
+            c = read();
+        }
+    }
+
+    /**
+     * The line the record last returned by {@link #next} started on.
+     */
+    long getLine() {
+        return recordLine;
+    }
+
+    // Consumes one \n, \r or \r\n and returns the character after it.
+    private int skipLineBreak(int c) throws IOException {
+        line++;
+        int n = read();
+        if (c == '\r' && n == '\n') {
+            n = read();
+        }
+        return n;
+    }
+
+    private int read() throws IOException {
+        if (pending != -2) {
+            int c = pending;
+            pending = -2;
+            return c;
+        }
+        return in.read();
+    }
+}
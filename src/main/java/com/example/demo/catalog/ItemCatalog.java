@@ -0,0 +1,244 @@
+package com.example.demo.catalog;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+
+/**
+ * Read-through cache in front of {@link ItemRepository}.
+ *
+ * Single items live in a bounded LRU map. Listing pages and the name index
+ * are served from one id-ordered snapshot of the table, taken only while the
+ * catalog fits within the same bound; larger catalogs page with keyset
+ * queries against the database and are only counted again after a write.
+ * Every write to an item bumps a generation counter so that loads racing
+ * with a write never repopulate the cache with stale rows, and then advances
+ * the {@link CatalogVersion} behind the ETags. Loads store their result and
+ * writes bump the generation under the lock of the item map, so a load can
+ * not pass the generation check just before a write and store after it.
+ */
+@Component
+public class ItemCatalog {
+
+    // Stands in for the snapshot while the catalog is too large to take one.
+    private static final Snapshot TOO_LARGE = new Snapshot(Collections.<Item>emptyList());
+
+    private final ItemRepository itemRepository;
+
+    private final CatalogVersion version;
+
+    private final int maxItems;
+
+    private final Map<Long, Item> itemsById;
+
+    private volatile Snapshot snapshot;
+
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    public ItemCatalog(ItemRepository itemRepository,
+                       CatalogVersion version,
+                       @Value("${catalog.cache.max-items:10000}") int maxItems) {
+        this.itemRepository = itemRepository;
+        this.version = version;
+        this.maxItems = maxItems;
+        this.itemsById = Collections.synchronizedMap(new LinkedHashMap<Long, Item>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Item> eldest) {
+                if (size() > ItemCatalog.this.maxItems) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        });
+    }
+
+    public Optional<Item> findById(Long id) {
+        Item item = itemsById.get(id);
+        if (item != null) {
+            hits.increment();
+            return Optional.of(item);
+        }
+        misses.increment();
+        long gen = generation.get();
+        Optional<Item> loaded = itemRepository.findById(id);
+        if (loaded.isPresent()) {
+            synchronized (itemsById) {
+                if (generation.get() == gen) {
+                    itemsById.put(id, loaded.get());
+                }
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Returns the items among the given ids that exist, keyed by id. Items not
+     * cached are loaded with one query.
+     */
+    public Map<Long, Item> findAllById(Collection<Long> ids) {
+        Map<Long, Item> found = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long id : ids) {
+            Item item = itemsById.get(id);
+            if (item != null) {
+                found.put(id, item);
+            } else {
+                missing.add(id);
+            }
+        }
+        hits.add(found.size());
+        if (missing.isEmpty()) {
+            return found;
+        }
+        misses.add(missing.size());
+        long gen = generation.get();
+        List<Item> loaded = itemRepository.findAllById(missing);
+        synchronized (itemsById) {
+            boolean current = generation.get() == gen;
+            for (Item item : loaded) {
+                found.put(item.getId(), item);
+                if (current) {
+                    itemsById.put(item.getId(), item);
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Returns up to {@code limit} items with an id greater than {@code afterId},
+     * in id order.
+     */
+    public List<Item> findPage(long afterId, int limit) {
+        Snapshot current = snapshot();
+        if (current == null) {
+            return itemRepository.findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.of(0, limit));
+        }
+        return current.page(afterId, limit);
+    }
+
+    public List<Item> findByName(String name) {
+        Snapshot current = snapshot();
+        if (current == null) {
+            return itemRepository.findByName(name);
+        }
+        List<Item> items = current.byName.get(name);
+        return items == null ? Collections.<Item>emptyList() : items;
+    }
+
+    public void invalidate(Long id) {
+        synchronized (itemsById) {
+            generation.incrementAndGet();
+            itemsById.remove(id);
+            snapshot = null;
+        }
+        version.itemChanged(id);
+    }
+
+    public void invalidateAll() {
+        synchronized (itemsById) {
+            generation.incrementAndGet();
+            itemsById.clear();
+            snapshot = null;
+        }
+        version.allChanged();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        if (event.isFullInvalidation()) {
+            invalidateAll();
+        } else {
+            invalidate(event.getItemId());
+        }
+    }
+
+    public CatalogCacheStats getStats() {
+        return new CatalogCacheStats(hits.sum(), misses.sum(), evictions.sum(), itemsById.size(), maxItems);
+    }
+
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current == TOO_LARGE) {
+            return null;
+        }
+        if (current != null) {
+            hits.increment();
+            return current;
+        }
+        misses.increment();
+        long gen = generation.get();
+        if (itemRepository.count() > maxItems) {
+            storeSnapshot(gen, TOO_LARGE);
+            return null;
+        }
+        current = new Snapshot(itemRepository.findAll());
+        storeSnapshot(gen, current);
+        return current;
+    }
+
+    private void storeSnapshot(long gen, Snapshot loaded) {
+        synchronized (itemsById) {
+            if (generation.get() == gen) {
+                snapshot = loaded;
+            }
+        }
+    }
+
+    private static final class Snapshot {
+
+        private final List<Item> all;
+
+        private final long[] ids;
+
+        private final Map<String, List<Item>> byName;
+
+        private Snapshot(List<Item> items) {
+            List<Item> sorted = new ArrayList<>(items);
+            sorted.sort(Comparator.comparing(Item::getId));
+            this.all = Collections.unmodifiableList(sorted);
+            this.ids = new long[sorted.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = sorted.get(i).getId();
+            }
+            Map<String, List<Item>> index = new HashMap<>();
+            for (Item item : items) {
+                index.computeIfAbsent(item.getName(), name -> new ArrayList<>()).add(item);
+            }
+            for (Map.Entry<String, List<Item>> entry : index.entrySet()) {
+                entry.setValue(Collections.unmodifiableList(entry.getValue()));
+            }
+            this.byName = index;
+        }
+
+        private List<Item> page(long afterId, int limit) {
+            int pos = Arrays.binarySearch(ids, afterId);
+            int from = pos >= 0 ? pos + 1 : -pos - 1;
+            return all.subList(from, Math.min(ids.length, from + limit));
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.demo.catalog;
+
+import java.util.function.Supplier;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.model.persistence.Item;
+
+/**
+ * JPA listener on {@link Item} that turns every write into a
+ * {@link CatalogChangedEvent}. Hibernate obtains it from the Spring context.
+ * Bulk writers can switch it off for their thread with {@link #withoutEvents}
+ * and publish a single event when they are done.
+ */
+@Component
+public class ItemEntityListener {
+
+    private static final ThreadLocal<Boolean> SUPPRESSED = new ThreadLocal<>();
+
+    @Autowired
+    private ApplicationEventPublisher publisher;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onWrite(Item item) {
+        if (SUPPRESSED.get() != null) {
+            return;
+        }
+        publisher.publishEvent(new CatalogChangedEvent(item.getId()));
+    }
+
+    /**
+     * Runs the writes without publishing an event per item. The caller is
+     * responsible for publishing one that covers them.
+     */
+    public static <T> T withoutEvents(Supplier<T> writes) {
+        if (SUPPRESSED.get() != null) {
+            return writes.get();
+        }
+        SUPPRESSED.set(Boolean.TRUE);
+        try {
+            return writes.get();
+        } finally {
+            SUPPRESSED.remove();
+        }
+    }
+}
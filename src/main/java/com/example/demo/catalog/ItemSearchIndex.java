@@ -0,0 +1,557 @@
+package com.example.demo.catalog;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+
+/**
+ * In-memory search index over item names and descriptions.
+ *
+ * Terms are kept in a sorted map so a query token matches every term it is a
+ * prefix of, and in a bigram index that supplies candidates for typo-tolerant
+ * matching (Damerau-Levenshtein against the whole term or against its prefix
+ * of the same length, so misspelt prefixes still autocomplete). Every query
+ * token must match; items are ranked by exact, then prefix, then fuzzy
+ * matches, with name matches weighted above description matches, and then by
+ * shorter name.
+ *
+ * Item changes update the index in place. A full rebuild loads the catalog
+ * outside the lock; changes that land meanwhile are replayed onto the new
+ * index before it replaces the old one.
+ */
+@Component
+public class ItemSearchIndex {
+
+    private static final int NAME = 1;
+
+    private static final int DESCRIPTION = 2;
+
+    private static final double EXACT = 3.0;
+
+    private static final double PREFIX = 2.0;
+
+    private static final double FUZZY = 1.0;
+
+    private static final double NAME_WEIGHT = 2.0;
+
+    private static final double[] TIERS = { EXACT, PREFIX, FUZZY };
+
+    private static final int MAX_PREFIX_EXPANSIONS = 256;
+
+    private static final int MAX_CANDIDATES = 5000;
+
+    private final ItemRepository itemRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Index index = new Index();
+
+    // Changes applied while a rebuild is loading, or null when none is;
+    // guarded by the write lock.
+    private List<Change> replay;
+
+    private final Object rebuildLock = new Object();
+
+    public ItemSearchIndex(ItemRepository itemRepository) {
+        this.itemRepository = itemRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            lock.writeLock().lock();
+            try {
+                replay = new ArrayList<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            Index fresh = Index.of(itemRepository.findAll());
+            lock.writeLock().lock();
+            try {
+                for (Change change : replay) {
+                    change.applyTo(fresh);
+                }
+                index = fresh;
+                replay = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        if (event.isFullInvalidation()) {
+            rebuild();
+            return;
+        }
+        Change change = new Change(event.getItemId(), itemRepository.findById(event.getItemId()));
+        lock.writeLock().lock();
+        try {
+            change.applyTo(index);
+            if (index.needsCompaction()) {
+                index = index.compacted();
+            }
+            if (replay != null) {
+                replay.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<Item> search(String query, int limit) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        lock.readLock().lock();
+        try {
+            return index.search(tokens, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean wordChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    static Set<String> bigrams(String term) {
+        String padded = "^" + term;
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + 2 <= padded.length(); i++) {
+            grams.add(padded.substring(i, i + 2));
+        }
+        return grams;
+    }
+
+    /**
+     * Optimal string alignment distance, giving up once it exceeds {@code max}.
+     */
+    static int distance(String a, String b, int max) {
+        if (Math.abs(a.length() - b.length()) > max) {
+            return max + 1;
+        }
+        int[] prev2 = new int[b.length() + 1];
+        int[] prev = new int[b.length() + 1];
+        int[] cur = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            prev[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            cur[0] = i;
+            int rowMin = cur[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int d = Math.min(Math.min(prev[j] + 1, cur[j - 1] + 1), prev[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    d = Math.min(d, prev2[j - 2] + 1);
+                }
+                cur[j] = d;
+                rowMin = Math.min(rowMin, d);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] tmp = prev2;
+            prev2 = prev;
+            prev = cur;
+            cur = tmp;
+        }
+        return prev[b.length()];
+    }
+
+    private static int maxEdits(String token) {
+        return token.length() < 4 ? 0 : token.length() < 8 ? 1 : 2;
+    }
+
+    private static final class Change {
+
+        private final Long id;
+
+        private final Optional<Item> item;
+
+        private Change(Long id, Optional<Item> item) {
+            this.id = id;
+            this.item = item;
+        }
+
+        private void applyTo(Index index) {
+            index.remove(id);
+            if (item.isPresent()) {
+                index.add(item.get());
+            }
+        }
+    }
+
+    private static final class Doc {
+
+        private final Item item;
+
+        private final String[] terms;
+
+        private final int[] fields;
+
+        private Doc(Item item, String[] terms, int[] fields) {
+            this.item = item;
+            this.terms = terms;
+            this.fields = fields;
+        }
+
+        private int nameLength() {
+            return item.getName() == null ? 0 : item.getName().length();
+        }
+
+        /**
+         * The static rank: shorter names first, then lower ids.
+         */
+        private boolean ranksBefore(Doc other) {
+            int byLength = Integer.compare(nameLength(), other.nameLength());
+            return byLength != 0 ? byLength < 0 : item.getId() < other.item.getId();
+        }
+    }
+
+    /**
+     * Ordinals of the documents containing one term, in ascending order.
+     */
+    private static final class Posting {
+
+        private int[] docs = new int[4];
+
+        private int size;
+
+        private void append(int doc) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+            }
+            docs[size++] = doc;
+        }
+
+        private void remove(int doc) {
+            int pos = Arrays.binarySearch(docs, 0, size, doc);
+            if (pos < 0) {
+                return;
+            }
+            System.arraycopy(docs, pos + 1, docs, pos, size - pos - 1);
+            size--;
+        }
+    }
+
+    private static final class Cursor {
+
+        private final Posting posting;
+
+        private int pos;
+
+        private Cursor(Posting posting) {
+            this.posting = posting;
+        }
+
+        private int doc() {
+            return posting.docs[pos];
+        }
+    }
+
+    /**
+     * Best {@code limit} documents by score, ties going to the higher static
+     * rank.
+     */
+    private static final class TopK {
+
+        private final List<Doc> all;
+
+        private final double[] scores;
+
+        private final int[] docs;
+
+        private int size;
+
+        private TopK(List<Doc> all, int limit) {
+            this.all = all;
+            this.scores = new double[limit];
+            this.docs = new int[limit];
+        }
+
+        private void offer(int doc, double score) {
+            int pos = size;
+            while (pos > 0 && (score > scores[pos - 1]
+                    || (score == scores[pos - 1] && all.get(doc).ranksBefore(all.get(docs[pos - 1]))))) {
+                pos--;
+            }
+            if (pos == scores.length) {
+                return;
+            }
+            int tail = Math.min(size, scores.length - 1) - pos;
+            System.arraycopy(scores, pos, scores, pos + 1, tail);
+            System.arraycopy(docs, pos, docs, pos + 1, tail);
+            scores[pos] = score;
+            docs[pos] = doc;
+            size = Math.min(size + 1, scores.length);
+        }
+    }
+
+    /**
+     * Documents are numbered in insertion order, so postings are appended in
+     * order. A build inserts them in static rank order, which the candidate
+     * walk relies on to reach the best-ranked documents first; an updated item
+     * leaves a tombstone and is appended at the end. Once tombstones make up a
+     * quarter of the documents the index is rebuilt from its live documents,
+     * restoring rank order and dropping them.
+     */
+    private static final class Index {
+
+        private final TreeMap<String, Posting> postings = new TreeMap<>();
+
+        private final Map<String, Set<String>> termsByGram = new HashMap<>();
+
+        private final List<Doc> docs = new ArrayList<>();
+
+        private final Map<Long, Integer> ordinals = new HashMap<>();
+
+        private int tombstones;
+
+        private static Index of(List<Item> items) {
+            List<Item> sorted = new ArrayList<>(items);
+            sorted.sort(Comparator.comparingInt((Item item) -> item.getName() == null ? 0 : item.getName().length())
+                    .thenComparing(Item::getId));
+            Index index = new Index();
+            for (Item item : sorted) {
+                index.add(item);
+            }
+            return index;
+        }
+
+        private boolean needsCompaction() {
+            return tombstones > docs.size() / 4;
+        }
+
+        private Index compacted() {
+            List<Item> live = new ArrayList<>(ordinals.size());
+            for (Doc doc : docs) {
+                if (doc != null) {
+                    live.add(doc.item);
+                }
+            }
+            return of(live);
+        }
+
+        private void add(Item item) {
+            Map<String, Integer> termFields = new LinkedHashMap<>();
+            for (String term : tokenize(item.getName())) {
+                termFields.merge(term, NAME, (a, b) -> a | b);
+            }
+            for (String term : tokenize(item.getDescription())) {
+                termFields.merge(term, DESCRIPTION, (a, b) -> a | b);
+            }
+            int ordinal = docs.size();
+            String[] terms = new String[termFields.size()];
+            int[] fields = new int[termFields.size()];
+            int i = 0;
+            for (Map.Entry<String, Integer> entry : termFields.entrySet()) {
+                String term = entry.getKey();
+                Posting posting = postings.get(term);
+                if (posting == null) {
+                    posting = new Posting();
+                    postings.put(term, posting);
+                    for (String gram : bigrams(term)) {
+                        termsByGram.computeIfAbsent(gram, g -> new HashSet<>()).add(term);
+                    }
+                }
+                posting.append(ordinal);
+                terms[i] = term;
+                fields[i] = entry.getValue();
+                i++;
+            }
+            docs.add(new Doc(item, terms, fields));
+            ordinals.put(item.getId(), ordinal);
+        }
+
+        private void remove(Long id) {
+            Integer ordinal = ordinals.remove(id);
+            if (ordinal == null) {
+                return;
+            }
+            Doc doc = docs.set(ordinal, null);
+            tombstones++;
+            for (String term : doc.terms) {
+                Posting posting = postings.get(term);
+                posting.remove(ordinal);
+                if (posting.size == 0) {
+                    postings.remove(term);
+                    for (String gram : bigrams(term)) {
+                        Set<String> terms = termsByGram.get(gram);
+                        terms.remove(term);
+                        if (terms.isEmpty()) {
+                            termsByGram.remove(gram);
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * Candidates come from the postings of the most selective query token,
+         * walked tier by tier (exact, prefix, fuzzy terms) in ordinal order and
+         * capped at {@link #MAX_CANDIDATES}. Each candidate is then scored
+         * against every token by looking its own terms up in the matched terms.
+         */
+        private List<Item> search(List<String> tokens, int limit) {
+            List<Map<String, Double>> tokenTerms = new ArrayList<>();
+            int driver = 0;
+            long driverSize = Long.MAX_VALUE;
+            for (String token : new LinkedHashSet<>(tokens)) {
+                Map<String, Double> terms = matchTerms(token);
+                if (terms.isEmpty()) {
+                    return Collections.emptyList();
+                }
+                long size = 0;
+                for (String term : terms.keySet()) {
+                    size += postings.get(term).size;
+                }
+                if (size < driverSize) {
+                    driverSize = size;
+                    driver = tokenTerms.size();
+                }
+                tokenTerms.add(terms);
+            }
+            TopK top = new TopK(docs, limit);
+            Map<String, Double> driverTerms = tokenTerms.get(driver);
+            int evaluated = 0;
+            for (double tier : TIERS) {
+                PriorityQueue<Cursor> cursors = new PriorityQueue<>(Comparator.comparingInt(Cursor::doc));
+                for (Map.Entry<String, Double> entry : driverTerms.entrySet()) {
+                    if (entry.getValue() == tier) {
+                        cursors.add(new Cursor(postings.get(entry.getKey())));
+                    }
+                }
+                int last = -1;
+                while (!cursors.isEmpty() && evaluated < MAX_CANDIDATES) {
+                    Cursor cursor = cursors.poll();
+                    int doc = cursor.doc();
+                    if (++cursor.pos < cursor.posting.size) {
+                        cursors.add(cursor);
+                    }
+                    if (doc == last) {
+                        continue;
+                    }
+                    last = doc;
+                    evaluated++;
+                    double score = score(docs.get(doc), tokenTerms, driver, tier);
+                    if (score > 0) {
+                        top.offer(doc, score);
+                    }
+                }
+            }
+            List<Item> items = new ArrayList<>(top.size);
+            for (int i = 0; i < top.size; i++) {
+                items.add(docs.get(top.docs[i]).item);
+            }
+            return items;
+        }
+
+        /**
+         * Sum over tokens of the best weighted term match, or zero when a token
+         * does not match or when the driver token matches through a higher
+         * tier (the document was already scored in that tier).
+         */
+        private static double score(Doc doc, List<Map<String, Double>> tokenTerms, int driver, double tier) {
+            double total = 0;
+            for (int t = 0; t < tokenTerms.size(); t++) {
+                Map<String, Double> terms = tokenTerms.get(t);
+                double best = 0;
+                double bestBase = 0;
+                for (int i = 0; i < doc.terms.length; i++) {
+                    Double base = terms.get(doc.terms[i]);
+                    if (base != null) {
+                        bestBase = Math.max(bestBase, base);
+                        best = Math.max(best, (doc.fields[i] & NAME) != 0 ? base * NAME_WEIGHT : base);
+                    }
+                }
+                if (best == 0 || (t == driver && bestBase > tier)) {
+                    return 0;
+                }
+                total += best;
+            }
+            return total;
+        }
+
+        /**
+         * Index terms matching one query token, with the base score of the
+         * match: exact, prefix, or within the token's edit budget.
+         */
+        private Map<String, Double> matchTerms(String token) {
+            Map<String, Double> terms = new HashMap<>();
+            for (String term : postings.subMap(token, true, token + Character.MAX_VALUE, true).keySet()) {
+                terms.put(term, term.length() == token.length() ? EXACT : PREFIX);
+                if (terms.size() >= MAX_PREFIX_EXPANSIONS) {
+                    break;
+                }
+            }
+            int maxEdits = maxEdits(token);
+            if (maxEdits == 0) {
+                return terms;
+            }
+            // Each edit destroys at most three of the token's bigrams.
+            Set<String> grams = bigrams(token);
+            int minShared = Math.max(1, grams.size() - 3 * maxEdits);
+            Map<String, Integer> shared = new HashMap<>();
+            for (String gram : grams) {
+                Set<String> gramTerms = termsByGram.get(gram);
+                if (gramTerms != null) {
+                    for (String term : gramTerms) {
+                        shared.merge(term, 1, Integer::sum);
+                    }
+                }
+            }
+            for (Map.Entry<String, Integer> candidate : shared.entrySet()) {
+                String term = candidate.getKey();
+                if (candidate.getValue() < minShared || terms.containsKey(term) || term.startsWith(token)) {
+                    continue;
+                }
+                String head = term.length() > token.length() ? term.substring(0, token.length()) : term;
+                if (distance(token, head, maxEdits) <= maxEdits || distance(token, term, maxEdits) <= maxEdits) {
+                    terms.put(term, FUZZY);
+                }
+            }
+            return terms;
+        }
+    }
+}
@@ -1,23 +1,35 @@
 package com.example.demo.controllers;
 
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.stream.IntStream;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.example.demo.cart.CartUpdates;
+import com.example.demo.cart.InMemoryCartStore;
+import com.example.demo.catalog.ItemCatalog;
+import com.example.demo.model.CartContents;
 import com.example.demo.model.persistence.Cart;
 import com.example.demo.model.persistence.Item;
 import com.example.demo.model.persistence.User;
 import com.example.demo.model.persistence.repositories.CartRepository;
-import com.example.demo.model.persistence.repositories.ItemRepository;
 import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.model.requests.BatchModifyCartRequest;
+import com.example.demo.model.requests.CartOperation;
 import com.example.demo.model.requests.ModifyCartRequest;
+import com.example.demo.model.responses.CartView;
+import com.example.demo.security.AuthenticatedUser;
 
 @RestController
 @RequestMapping("/api/cart")
@@ -30,40 +42,114 @@ public class CartController {
 	private CartRepository cartRepository;
 	
 	@Autowired
-	private ItemRepository itemRepository;
+	private ItemCatalog itemCatalog;
+	
+	@Autowired
+	private CartUpdates cartUpdates;
+
+	// Only present when cart.store.mode is memory.
+	@Autowired(required = false)
+	private InMemoryCartStore cartStore;
 	
 	@PostMapping("/addToCart")
-	public ResponseEntity<Cart> addTocart(@RequestBody ModifyCartRequest request) {
-		User user = userRepository.findByUsername(request.getUsername());
-		if(user == null) {
-			return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
-		}
-		Optional<Item> item = itemRepository.findById(request.getItemId());
+	public ResponseEntity<CartView> addTocart(@RequestBody ModifyCartRequest request,
+			@AuthenticationPrincipal AuthenticatedUser principal) {
+		Optional<Item> item = itemCatalog.findById(request.getItemId());
 		if(!item.isPresent()) {
 			return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
 		}
-		Cart cart = user.getCart();
-		IntStream.range(0, request.getQuantity())
-			.forEach(i -> cart.addItem(item.get()));
-		cartRepository.save(cart);
-		return ResponseEntity.ok(cart);
+		return modify(request.getUsername(), principal, cart -> cart.addItem(item.get(), request.getQuantity()));
 	}
 	
 	@PostMapping("/removeFromCart")
-	public ResponseEntity<Cart> removeFromcart(@RequestBody ModifyCartRequest request) {
-		User user = userRepository.findByUsername(request.getUsername());
-		if(user == null) {
+	public ResponseEntity<CartView> removeFromcart(@RequestBody ModifyCartRequest request,
+			@AuthenticationPrincipal AuthenticatedUser principal) {
+		Optional<Item> item = itemCatalog.findById(request.getItemId());
+		if(!item.isPresent()) {
 			return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
 		}
-		Optional<Item> item = itemRepository.findById(request.getItemId());
-		if(!item.isPresent()) {
+		return modify(request.getUsername(), principal, cart -> cart.removeItem(item.get(), request.getQuantity()));
+	}
+
+	@PostMapping("/batch")
+	public ResponseEntity<CartView> modifyCart(@RequestBody BatchModifyCartRequest request,
+			@AuthenticationPrincipal AuthenticatedUser principal) {
+		List<CartOperation> operations = request.getOperations();
+		if(operations == null || operations.stream()
+				.anyMatch(op -> op.getType() == null || op.getQuantity() < 0)) {
+			return ResponseEntity.badRequest().build();
+		}
+		Set<Long> itemIds = operations.stream()
+			.map(CartOperation::getItemId)
+			.collect(Collectors.toSet());
+		Map<Long, Item> items = itemCatalog.findAllById(itemIds);
+		if(items.size() != itemIds.size()) {
 			return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
 		}
-		Cart cart = user.getCart();
-		IntStream.range(0, request.getQuantity())
-			.forEach(i -> cart.removeItem(item.get()));
-		cartRepository.save(cart);
-		return ResponseEntity.ok(cart);
+		return modify(request.getUsername(), principal, cart -> {
+			for(CartOperation op : operations) {
+				Item item = items.get(op.getItemId());
+				switch(op.getType()) {
+				case ADD:
+					cart.addItem(item, op.getQuantity());
+					break;
+				case REMOVE:
+					cart.removeItem(item, op.getQuantity());
+					break;
+				case SET:
+					cart.setQuantity(item, op.getQuantity());
+					break;
+				}
+			}
+		});
 	}
-		
+
+	// Applies the change to the in-memory cart when the store is enabled, and
+	// otherwise to the cart entity in a retried transaction.
+	private ResponseEntity<CartView> modify(String username, AuthenticatedUser principal,
+			Consumer<CartContents> change) {
+		if(cartStore != null) {
+			Long cartId = findCartId(username, principal);
+			CartView view = cartId == null ? null : cartStore.update(cartId, change);
+			return view == null ? ResponseEntity.status(HttpStatus.NOT_FOUND).build() : ResponseEntity.ok(view);
+		}
+		return cartUpdates.execute(username, () -> {
+			Cart cart = findCart(username, principal);
+			if(cart == null) {
+				return ResponseEntity.status(HttpStatus.NOT_FOUND).<CartView>build();
+			}
+			change.accept(cart);
+			cartRepository.save(cart);
+			return ResponseEntity.ok(CartView.of(cart));
+		});
+	}
+
+	// Reading the id off the user's lazy cart reference does not load the cart.
+	private Long findCartId(String username, AuthenticatedUser principal) {
+		if(principal != null && principal.getCartId() != null && principal.is(username)) {
+			return principal.getCartId();
+		}
+		User user = userRepository.findByUsername(username);
+		return user == null || user.getCart() == null ? null : user.getCart().getId();
+	}
+
+	// The token of the requesting user carries its cart id, which saves the
+	// username lookup; anyone else's cart is still found through the user.
+	// The cart row is locked and re-read before its lines are, so overlapping
+	// updates of the same cart run one after the other instead of one of them
+	// being lost.
+	private Cart findCart(String username, AuthenticatedUser principal) {
+		Cart cart;
+		if(principal != null && principal.getCartId() != null && principal.is(username)) {
+			cart = cartRepository.findById(principal.getCartId()).orElse(null);
+		} else {
+			User user = userRepository.findByUsername(username);
+			cart = user == null ? null : user.getCart();
+		}
+		if(cart != null) {
+			cartRepository.lockForUpdate(cart);
+		}
+		return cart;
+	}
+
 }
@@ -0,0 +1,59 @@
+package com.example.demo.controllers;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.web.annotation.RestControllerEndpoint;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.annotation.PostMapping;
+
+import com.example.demo.catalog.CatalogImportService;
+import com.example.demo.model.responses.ImportReport;
+
+/**
+ * Rewrites the catalog from a feed, so like the order export it is served at
+ * {@code /actuator/catalogimport} on the loopback management port and not to
+ * end users.
+ */
+@Component
+@RestControllerEndpoint(id = "catalogimport")
+public class CatalogImportEndpoint {
+
+	@Autowired
+	private CatalogImportService catalogImportService;
+
+	@Value("${catalog.import.enabled:false}")
+	private boolean importEnabled;
+
+	@PostMapping(consumes = "text/csv")
+	public ResponseEntity<ImportReport> importCsv(HttpServletRequest request) throws IOException {
+		if(!importEnabled) {
+			return ResponseEntity.notFound().build();
+		}
+		return ResponseEntity.ok(catalogImportService.importCsv(body(request)));
+	}
+
+	@PostMapping(consumes = "application/x-ndjson")
+	public ResponseEntity<ImportReport> importNdjson(HttpServletRequest request) throws IOException {
+		if(!importEnabled) {
+			return ResponseEntity.notFound().build();
+		}
+		return ResponseEntity.ok(catalogImportService.importNdjson(body(request)));
+	}
+
+	// Feeds are read straight off the request rather than buffered; UTF-8
+	// unless the client says otherwise.
+	private static Reader body(HttpServletRequest request) throws IOException {
+		Charset charset = request.getCharacterEncoding() == null ? StandardCharsets.UTF_8
+				: Charset.forName(request.getCharacterEncoding());
+		return new InputStreamReader(request.getInputStream(), charset);
+	}
+}
@@ -3,38 +3,138 @@ package com.example.demo.controllers;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.example.demo.catalog.CatalogCacheStats;
+import com.example.demo.catalog.CatalogResponseCache;
+import com.example.demo.catalog.CatalogVersion;
+import com.example.demo.catalog.ItemCatalog;
+import com.example.demo.catalog.ItemSearchIndex;
+import com.example.demo.catalog.PageCursor;
 import com.example.demo.model.persistence.Item;
-import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.model.responses.ItemPage;
 
 @RestController
 @RequestMapping("/api/item")
 public class ItemController {
 
 	@Autowired
-	private ItemRepository itemRepository;
+	private ItemCatalog itemCatalog;
+
+	@Autowired
+	private CatalogVersion catalogVersion;
+
+	@Autowired
+	private CatalogResponseCache responseCache;
+
+	@Autowired
+	private ItemSearchIndex itemSearchIndex;
+
+	@Value("${catalog.page.default-size:50}")
+	private int defaultPageSize;
+
+	@Value("${catalog.page.max-size:500}")
+	private int maxPageSize;
 	
+	// The tag is read before the catalog, so a change landing in between
+	// leaves an older tag on a newer body and the next request refetches.
+	// Bodies come pre-encoded from the response cache.
 	@GetMapping
-	public ResponseEntity<List<Item>> getItems() {
-		return ResponseEntity.ok(itemRepository.findAll());
+	public ResponseEntity<byte[]> getItems(@RequestParam(required = false) String cursor,
+			@RequestParam(required = false) Integer size,
+			@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+			@RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+		String etag = catalogVersion.listingTag();
+		String matched = CatalogVersion.matchingTag(ifNoneMatch, etag);
+		if(matched != null) {
+			return notModified(matched);
+		}
+		long afterId;
+		try {
+			afterId = cursor == null ? 0L : PageCursor.decode(cursor);
+		} catch (IllegalArgumentException e) {
+			return ResponseEntity.badRequest().build();
+		}
+		int pageSize = size == null ? defaultPageSize : Math.max(1, Math.min(size, maxPageSize));
+		CatalogResponseCache.Encoded body = responseCache.page(afterId, pageSize, etag, () -> {
+			List<Item> items = itemCatalog.findPage(afterId, pageSize + 1);
+			String nextCursor = null;
+			if(items.size() > pageSize) {
+				items = items.subList(0, pageSize);
+				nextCursor = PageCursor.encode(items.get(pageSize - 1).getId());
+			}
+			return new ItemPage(items, nextCursor);
+		});
+		return encoded(body, etag, acceptEncoding);
 	}
 	
 	@GetMapping("/{id}")
-	public ResponseEntity<Item> getItemById(@PathVariable Long id) {
-		return ResponseEntity.of(itemRepository.findById(id));
+	public ResponseEntity<byte[]> getItemById(@PathVariable Long id,
+			@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+			@RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+		String etag = catalogVersion.itemTag(id);
+		String matched = CatalogVersion.matchingTag(ifNoneMatch, etag);
+		if(matched != null) {
+			return notModified(matched);
+		}
+		CatalogResponseCache.Encoded body = responseCache.item(id, etag, () -> itemCatalog.findById(id).orElse(null));
+		if(body == null) {
+			return ResponseEntity.notFound().build();
+		}
+		return encoded(body, etag, acceptEncoding);
 	}
 	
 	@GetMapping("/name/{name}")
 	public ResponseEntity<List<Item>> getItemsByName(@PathVariable String name) {
-		List<Item> items = itemRepository.findByName(name);
+		List<Item> items = itemCatalog.findByName(name);
 		return items == null || items.isEmpty() ? ResponseEntity.notFound().build()
 				: ResponseEntity.ok(items);
 			
 	}
+
+	@GetMapping("/search")
+	public ResponseEntity<List<Item>> searchItems(@RequestParam("q") String query,
+			@RequestParam(defaultValue = "10") int limit) {
+		return ResponseEntity.ok(itemSearchIndex.search(query, Math.min(limit, maxPageSize)));
+	}
+
+	@GetMapping("/cache/stats")
+	public ResponseEntity<CatalogCacheStats> getCacheStats() {
+		return ResponseEntity.ok(itemCatalog.getStats());
+	}
+
+	private static ResponseEntity<byte[]> encoded(CatalogResponseCache.Encoded body, String etag,
+			String acceptEncoding) {
+		ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+				.cacheControl(CacheControl.noCache())
+				.varyBy(HttpHeaders.ACCEPT_ENCODING)
+				.contentType(MediaType.APPLICATION_JSON_UTF8);
+		if(body.getGzip() != null && CatalogResponseCache.acceptsGzip(acceptEncoding)) {
+			return response.eTag(CatalogVersion.gzipTag(etag))
+					.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(body.getGzip());
+		}
+		return response.eTag(etag).body(body.getJson());
+	}
+
+	// Repeats the tag the client sent, so a cache revalidating its gzip copy
+	// keeps the gzip tag.
+	private static <T> ResponseEntity<T> notModified(String etag) {
+		return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+				.eTag(etag)
+				.cacheControl(CacheControl.noCache())
+				.varyBy(HttpHeaders.ACCEPT_ENCODING)
+				.build();
+	}
 	
 }
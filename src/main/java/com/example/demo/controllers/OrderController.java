@@ -1,21 +1,33 @@
 package com.example.demo.controllers;
 
+import java.net.URI;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.example.demo.cart.InMemoryCartStore;
+import com.example.demo.inventory.InventoryService;
+import com.example.demo.inventory.Reservation;
 import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.OrderLine;
 import com.example.demo.model.persistence.User;
 import com.example.demo.model.persistence.UserOrder;
 import com.example.demo.model.persistence.repositories.CartRepository;
 import com.example.demo.model.persistence.repositories.OrderRepository;
 import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.model.responses.OrderStatus;
+import com.example.demo.model.responses.OrderView;
+import com.example.demo.orders.OrderSubmission;
+import com.example.demo.orders.OrderWriteBehind;
+import com.example.demo.security.AuthenticatedUser;
 
 @RestController
 @RequestMapping("/api/order")
@@ -25,27 +37,112 @@ public class OrderController {
 	@Autowired
 	private UserRepository userRepository;
 	
+	@Autowired
+	private CartRepository cartRepository;
+	
 	@Autowired
 	private OrderRepository orderRepository;
+
+	// Only present when cart.store.mode is memory.
+	@Autowired(required = false)
+	private InMemoryCartStore cartStore;
+
+	// Only present when inventory.enabled is set.
+	@Autowired(required = false)
+	private InventoryService inventoryService;
+
+	// Only present when orders.write-behind.enabled is set.
+	@Autowired(required = false)
+	private OrderWriteBehind orderWriteBehind;
+
 	
 	
 	@PostMapping("/submit/{username}")
-	public ResponseEntity<UserOrder> submit(@PathVariable String username) {
-		User user = userRepository.findByUsername(username);
-		if(user == null) {
+	public ResponseEntity<?> submit(@PathVariable String username,
+			@AuthenticationPrincipal AuthenticatedUser principal) {
+		Cart cart = findCart(username, principal);
+		if(cart == null) {
 			return ResponseEntity.notFound().build();
 		}
-		UserOrder order = UserOrder.createFromCart(user.getCart());
-		orderRepository.save(order);
-		return ResponseEntity.ok(order);
+		if(orderWriteBehind != null) {
+			OrderSubmission submission = OrderSubmission.fromCart(cart);
+			Reservation reservation = reserve(submission.getLines());
+			OrderStatus status = orderWriteBehind.submit(submission.withReservation(reservation));
+			if(status == null) {
+				release(reservation);
+				return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "1").build();
+			}
+			return ResponseEntity.accepted()
+					.location(URI.create("/api/order/status/" + status.getSubmissionId()))
+					.body(status);
+		}
+		UserOrder order = UserOrder.createFromCart(cart);
+		Reservation reservation = reserve(order.getLines());
+		try {
+			orderRepository.save(order);
+		} catch(RuntimeException e) {
+			release(reservation);
+			throw e;
+		}
+		if(reservation != null) {
+			inventoryService.confirm(reservation);
+		}
+		return ResponseEntity.ok(OrderView.of(order));
 	}
 	
 	@GetMapping("/history/{username}")
-	public ResponseEntity<List<UserOrder>> getOrdersForUser(@PathVariable String username) {
+	public ResponseEntity<List<OrderView>> getOrdersForUser(@PathVariable String username,
+			@AuthenticationPrincipal AuthenticatedUser principal) {
+		long userId;
+		if(principal != null && principal.getUserId() != null && principal.is(username)) {
+			userId = principal.getUserId();
+		} else {
+			User user = userRepository.findByUsername(username);
+			if(user == null) {
+				return ResponseEntity.notFound().build();
+			}
+			userId = user.getId();
+		}
+		return ResponseEntity.ok(OrderView.fromRows(orderRepository.findHistoryByUserId(userId)));
+	}
+
+	@GetMapping("/status/{submissionId}")
+	public ResponseEntity<OrderStatus> getStatus(@PathVariable String submissionId,
+			@AuthenticationPrincipal AuthenticatedUser principal) {
+		if(orderWriteBehind == null || principal == null || principal.getUserId() == null) {
+			return ResponseEntity.notFound().build();
+		}
+		OrderStatus status = orderWriteBehind.getStatus(submissionId, principal.getUserId());
+		return status == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(status);
+	}
+
+	// Throws OutOfStockException, answered with 409, if an item has run out.
+	private Reservation reserve(List<OrderLine> lines) {
+		return inventoryService == null ? null : inventoryService.reserve(lines);
+	}
+
+	private void release(Reservation reservation) {
+		if(reservation != null) {
+			inventoryService.release(reservation);
+		}
+	}
+
+	// With the in-memory cart store, pending cart changes are written back
+	// before the cart is read, so the order matches what the client last saw.
+	private Cart findCart(String username, AuthenticatedUser principal) {
+		if(principal != null && principal.getCartId() != null && principal.is(username)) {
+			if(cartStore != null) {
+				cartStore.flush(principal.getCartId());
+			}
+			return cartRepository.findById(principal.getCartId()).orElse(null);
+		}
 		User user = userRepository.findByUsername(username);
 		if(user == null) {
-			return ResponseEntity.notFound().build();
+			return null;
+		}
+		if(cartStore != null && user.getCart() != null) {
+			cartStore.flush(user.getCart().getId());
 		}
-		return ResponseEntity.ok(orderRepository.findByUser(user));
+		return user.getCart();
 	}
 }
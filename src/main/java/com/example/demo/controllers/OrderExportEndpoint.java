@@ -0,0 +1,44 @@
+package com.example.demo.controllers;
+
+import java.io.IOException;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.web.annotation.RestControllerEndpoint;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import com.example.demo.orders.OrderExportService;
+
+/**
+ * Streams every customer's orders, so it is served at
+ * {@code /actuator/orderexport} on the loopback management port, like the
+ * metrics, and not to end users.
+ */
+@Component
+@RestControllerEndpoint(id = "orderexport")
+public class OrderExportEndpoint {
+
+	@Autowired
+	private OrderExportService orderExportService;
+
+	@Value("${orders.export.enabled:false}")
+	private boolean exportEnabled;
+
+	@GetMapping
+	public void exportOrders(@RequestParam(required = false) Long fromId,
+			@RequestParam(required = false) Long toId,
+			HttpServletResponse response) throws IOException {
+		if(!exportEnabled) {
+			response.sendError(HttpStatus.NOT_FOUND.value());
+			return;
+		}
+		response.setContentType("application/x-ndjson");
+		response.setCharacterEncoding("UTF-8");
+		orderExportService.export(fromId, toId, response.getOutputStream());
+	}
+}
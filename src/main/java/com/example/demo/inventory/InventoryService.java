@@ -0,0 +1,416 @@
+package com.example.demo.inventory;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.model.persistence.InventoryLease;
+import com.example.demo.model.persistence.OrderLine;
+import com.example.demo.model.persistence.repositories.InventoryLeaseRepository;
+import com.example.demo.model.persistence.repositories.InventoryRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Reserves stock for orders at submission time without a database round trip
+ * per order.
+ *
+ * Each instance leases blocks of {@code inventory.lease-size} units from the
+ * {@code inventory} table and hands them out from a {@link StripedStock}, so
+ * orders for the same item contend on memory, not on its row. A lease only
+ * succeeds while the table has that many unleased units, which is what keeps
+ * orders from exceeding stock across instances.
+ * Every {@code inventory.reconcile-interval-ms} the units sold since the last
+ * run are written back, reducing both stock and lease.
+ *
+ * Each instance also keeps an {@code inventory_lease} row per item, which it
+ * renews on every run. Rows not renewed for {@code inventory.lease-ttl-ms},
+ * such as those of an instance that died, are handed back to the table by
+ * whichever instance notices first; an instance started with the same
+ * {@code inventory.instance-id} hands back its old rows straight away. Units
+ * the dead instance sold after its last run are then counted as unsold, so
+ * the TTL should be many reconcile intervals and the clocks of instances
+ * should agree to well within it. An instance that finds its own lease gone
+ * stops selling from it.
+ *
+ * Items without an inventory row are not stock-tracked and always reserve.
+ */
+@Service
+@ConditionalOnProperty(name = "inventory.enabled", havingValue = "true", matchIfMissing = true)
+public class InventoryService {
+
+    private static final Logger log = LoggerFactory.getLogger(InventoryService.class);
+
+    private final ConcurrentHashMap<Long, ItemStock> stocks = new ConcurrentHashMap<>();
+
+    // Items this instance holds a lease row for.
+    private final Set<Long> leasedItems = ConcurrentHashMap.newKeySet();
+
+    private final InventoryRepository inventoryRepository;
+
+    private final InventoryLeaseRepository leaseRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final String instanceId;
+
+    private final boolean stableInstanceId;
+
+    private final int stripes;
+
+    private final long leaseSize;
+
+    private final long reconcileIntervalMillis;
+
+    private final long untrackedRecheckMillis;
+
+    private final long leaseTtlMillis;
+
+    private final Counter reserved;
+
+    private final Counter outOfStock;
+
+    private final Counter leases;
+
+    private final Counter reclaimed;
+
+    private final Thread reconciler;
+
+    private volatile boolean running = true;
+
+    public InventoryService(InventoryRepository inventoryRepository,
+                            InventoryLeaseRepository leaseRepository,
+                            PlatformTransactionManager transactionManager,
+                            MeterRegistry registry,
+                            @Value("${inventory.instance-id:}") String instanceId,
+                            @Value("${inventory.stripes:0}") int stripes,
+                            @Value("${inventory.lease-size:100}") long leaseSize,
+                            @Value("${inventory.lease-ttl-ms:60000}") long leaseTtlMillis,
+                            @Value("${inventory.reconcile-interval-ms:1000}") long reconcileIntervalMillis,
+                            @Value("${inventory.untracked-recheck-ms:60000}") long untrackedRecheckMillis) {
+        this.inventoryRepository = inventoryRepository;
+        this.leaseRepository = leaseRepository;
+        this.stableInstanceId = !instanceId.isEmpty();
+        this.instanceId = stableInstanceId ? instanceId : UUID.randomUUID().toString();
+        // Leases commit on their own: if they joined a caller's transaction
+        // and it rolled back, the units would be in memory but not leased.
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.stripes = stripes > 0 ? stripes : Runtime.getRuntime().availableProcessors();
+        this.leaseSize = leaseSize;
+        this.leaseTtlMillis = leaseTtlMillis;
+        this.reconcileIntervalMillis = reconcileIntervalMillis;
+        this.untrackedRecheckMillis = untrackedRecheckMillis;
+        this.reserved = Counter.builder("inventory.reservations").tag("outcome", "reserved").register(registry);
+        this.outOfStock = Counter.builder("inventory.reservations").tag("outcome", "out_of_stock").register(registry);
+        this.leases = Counter.builder("inventory.leases").register(registry);
+        this.reclaimed = Counter.builder("inventory.leases.reclaimed").register(registry);
+        this.reconciler = new Thread(this::run, "inventory-reconciler");
+        this.reconciler.setDaemon(true);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (stableInstanceId) {
+            for (InventoryLease lease : leaseRepository.findByInstanceId(instanceId)) {
+                reclaim(lease);
+            }
+        }
+        reclaimExpired();
+        reconciler.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        reconciler.join(TimeUnit.SECONDS.toMillis(30));
+        reconcile();
+        returnLeases();
+        transactionTemplate.execute(status -> leaseRepository.removeEmpty(instanceId));
+    }
+
+    /**
+     * Reserves the units ordered on every line, or none of them.
+     *
+     * @throws OutOfStockException if any item has too few units left
+     */
+    public Reservation reserve(Collection<OrderLine> lines) {
+        // Summed per item, so two lines for one item are checked together.
+        Map<Long, Long> wanted = new TreeMap<>();
+        for (OrderLine line : lines) {
+            wanted.merge(line.getItemId(), (long) line.getQuantity(), Long::sum);
+        }
+        Map<Long, Long> taken = new TreeMap<>();
+        try {
+            for (Map.Entry<Long, Long> entry : wanted.entrySet()) {
+                ItemStock stock = stock(entry.getKey());
+                if (!stock.isTracked()) {
+                    continue;
+                }
+                if (!stock.available.tryReserve(entry.getValue())
+                        && !refill(entry.getKey(), stock, entry.getValue())) {
+                    outOfStock.increment();
+                    throw new OutOfStockException(entry.getKey());
+                }
+                taken.put(entry.getKey(), entry.getValue());
+            }
+        } catch (RuntimeException e) {
+            release(new Reservation(taken));
+            throw e;
+        }
+        reserved.increment();
+        return taken.isEmpty() ? Reservation.EMPTY : new Reservation(taken);
+    }
+
+    /**
+     * Marks the reserved units as sold once the order is persisted.
+     */
+    public void confirm(Reservation reservation) {
+        for (Map.Entry<Long, Long> entry : reservation.getUnitsByItemId().entrySet()) {
+            stocks.get(entry.getKey()).sold.add(entry.getValue());
+        }
+    }
+
+    /**
+     * Puts the reserved units back when the order is not going to be persisted.
+     */
+    public void release(Reservation reservation) {
+        for (Map.Entry<Long, Long> entry : reservation.getUnitsByItemId().entrySet()) {
+            stocks.get(entry.getKey()).available.release(entry.getValue());
+        }
+    }
+
+    /**
+     * Units this instance can still hand out for the item without leasing
+     * more, or -1 if the item is not stock-tracked.
+     */
+    public long available(long itemId) {
+        ItemStock stock = stock(itemId);
+        return stock.isTracked() ? stock.available.available() : -1;
+    }
+
+    /**
+     * Writes the units sold since the last call back to the inventory table.
+     * An item that fails is logged and retried on the next call.
+     */
+    public void reconcile() {
+        for (Map.Entry<Long, ItemStock> entry : stocks.entrySet()) {
+            ItemStock stock = entry.getValue();
+            if (!stock.isTracked()) {
+                continue;
+            }
+            // Subtracted rather than reset, so units confirmed while this
+            // runs stay counted for the next run.
+            long sold = stock.sold.sum();
+            if (sold == 0) {
+                continue;
+            }
+            try {
+                boolean held = transactionTemplate.execute(status -> {
+                    if (leaseRepository.shrink(instanceId, entry.getKey(), sold) == 1) {
+                        inventoryRepository.recordSold(entry.getKey(), sold);
+                        return true;
+                    }
+                    inventoryRepository.recordSoldUnleased(entry.getKey(), sold);
+                    return false;
+                });
+                stock.sold.add(-sold);
+                if (!held) {
+                    leaseLost(entry.getKey());
+                }
+            } catch (RuntimeException e) {
+                log.error("Recording {} units sold of item {} failed", sold, entry.getKey(), e);
+            }
+        }
+    }
+
+    /**
+     * Renews this instance's leases and hands back those of other instances
+     * that have expired. Runs after every reconciliation.
+     */
+    public void maintainLeases() {
+        int renewed = transactionTemplate.execute(status ->
+                leaseRepository.renew(instanceId, System.currentTimeMillis() + leaseTtlMillis));
+        if (renewed < leasedItems.size()) {
+            Set<Long> held = new HashSet<>();
+            for (InventoryLease lease : leaseRepository.findByInstanceId(instanceId)) {
+                held.add(lease.getItemId());
+            }
+            for (Long itemId : leasedItems) {
+                if (!held.contains(itemId)) {
+                    leaseLost(itemId);
+                }
+            }
+        }
+        reclaimExpired();
+    }
+
+    // Items found to have no inventory row are looked up again only every
+    // inventory.untracked-recheck-ms, so that stocking one is picked up
+    // without querying on every order.
+    private ItemStock stock(long itemId) {
+        ItemStock stock = stocks.get(itemId);
+        if (stock != null && (stock.isTracked() || System.currentTimeMillis() < stock.recheckAt)) {
+            return stock;
+        }
+        ItemStock loaded = inventoryRepository.existsById(itemId)
+                ? new ItemStock(stripes)
+                : ItemStock.untracked(System.currentTimeMillis() + untrackedRecheckMillis);
+        if (stock == null) {
+            stock = stocks.putIfAbsent(itemId, loaded);
+            return stock == null ? loaded : stock;
+        }
+        return stocks.replace(itemId, stock, loaded) ? loaded : stocks.get(itemId);
+    }
+
+    // One thread per item leases at a time; the others wait and then find
+    // the units it deposited. A lease covers at least the units wanted. When
+    // the table has less than that left, the remainder is leased only if it
+    // makes up what the pool is short of; otherwise it stays in the table
+    // for other instances.
+    private boolean refill(long itemId, ItemStock stock, long units) {
+        synchronized (stock) {
+            if (stock.available.tryReserve(units)) {
+                return true;
+            }
+            long size = Math.max(leaseSize, units);
+            long shortfall = units - stock.available.available();
+            Long leased = transactionTemplate.execute(status -> {
+                long granted = size;
+                if (inventoryRepository.lease(itemId, granted) == 0) {
+                    Long free = inventoryRepository.findUnleased(itemId);
+                    if (free == null || free <= 0 || free < shortfall
+                            || inventoryRepository.lease(itemId, free) == 0) {
+                        return 0L;
+                    }
+                    granted = free;
+                }
+                long expiresAt = System.currentTimeMillis() + leaseTtlMillis;
+                if (leaseRepository.extend(instanceId, itemId, granted, expiresAt) == 0) {
+                    leaseRepository.save(new InventoryLease(instanceId, itemId, granted, expiresAt));
+                }
+                return granted;
+            });
+            if (leased > 0) {
+                leasedItems.add(itemId);
+                leases.increment();
+                stock.available.deposit(leased);
+            }
+            return stock.available.tryReserve(units);
+        }
+    }
+
+    private void returnLeases() {
+        for (Map.Entry<Long, ItemStock> entry : stocks.entrySet()) {
+            long unused = entry.getValue().available.drain();
+            if (unused > 0) {
+                transactionTemplate.execute(status ->
+                        leaseRepository.shrink(instanceId, entry.getKey(), unused) == 1
+                                ? inventoryRepository.returnLease(entry.getKey(), unused) : 0);
+            }
+        }
+    }
+
+    // The lease was handed back by another instance, so the units still in
+    // memory are no longer backed by it. The next reservation leases afresh.
+    private void leaseLost(long itemId) {
+        ItemStock stock = stocks.get(itemId);
+        synchronized (stock) {
+            if (!leasedItems.remove(itemId)) {
+                return;
+            }
+            long dropped = stock.available.drain();
+            log.warn("Lease on item {} was reclaimed; dropped {} unsold units", itemId, dropped);
+        }
+    }
+
+    private void reclaimExpired() {
+        for (InventoryLease lease : leaseRepository.findByExpiresAtLessThan(System.currentTimeMillis())) {
+            if (!lease.getInstanceId().equals(instanceId)) {
+                reclaim(lease);
+            }
+        }
+    }
+
+    private void reclaim(InventoryLease lease) {
+        try {
+            boolean removed = transactionTemplate.execute(status -> {
+                if (leaseRepository.remove(lease.getInstanceId(), lease.getItemId(),
+                        lease.getUnits(), lease.getExpiresAt()) == 0) {
+                    return false;
+                }
+                inventoryRepository.returnLease(lease.getItemId(), lease.getUnits());
+                return true;
+            });
+            if (removed) {
+                reclaimed.increment();
+                log.warn("Reclaimed {} units of item {} leased by instance {}",
+                        lease.getUnits(), lease.getItemId(), lease.getInstanceId());
+            }
+        } catch (RuntimeException e) {
+            log.error("Reclaiming the lease of instance {} on item {} failed",
+                    lease.getInstanceId(), lease.getItemId(), e);
+        }
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                Thread.sleep(reconcileIntervalMillis);
+                reconcile();
+                maintainLeases();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Inventory reconciliation failed", e);
+            }
+        }
+    }
+
+    private static final class ItemStock {
+
+        private final StripedStock available;
+
+        private final LongAdder sold = new LongAdder();
+
+        // Zero for a tracked item.
+        private final long recheckAt;
+
+        private ItemStock(int stripes) {
+            this(stripes, 0);
+        }
+
+        private ItemStock(int stripes, long recheckAt) {
+            this.available = new StripedStock(Math.max(stripes, 1));
+            this.recheckAt = recheckAt;
+        }
+
+        private static ItemStock untracked(long recheckAt) {
+            return new ItemStock(1, recheckAt);
+        }
+
+        private boolean isTracked() {
+            return recheckAt == 0;
+        }
+    }
+}
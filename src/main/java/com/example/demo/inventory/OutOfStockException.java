@@ -0,0 +1,22 @@
+package com.example.demo.inventory;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when an order asks for more units of an item than are in stock.
+ */
+@ResponseStatus(HttpStatus.CONFLICT)
+public class OutOfStockException extends RuntimeException {
+
+    private final long itemId;
+
+    public OutOfStockException(long itemId) {
+        super("Item " + itemId + " is out of stock");
+        this.itemId = itemId;
+    }
+
+    public long getItemId() {
+        return itemId;
+    }
+}
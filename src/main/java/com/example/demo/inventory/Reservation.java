@@ -0,0 +1,28 @@
+package com.example.demo.inventory;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Units held for one order between submission and the order being persisted
+ * or abandoned. Must end in exactly one of {@link InventoryService#confirm}
+ * or {@link InventoryService#release}. Untracked items are not included.
+ */
+public final class Reservation {
+
+    static final Reservation EMPTY = new Reservation(Collections.<Long, Long>emptyMap());
+
+    private final Map<Long, Long> unitsByItemId;
+
+    Reservation(Map<Long, Long> unitsByItemId) {
+        this.unitsByItemId = Collections.unmodifiableMap(unitsByItemId);
+    }
+
+    public Map<Long, Long> getUnitsByItemId() {
+        return unitsByItemId;
+    }
+
+    public boolean isEmpty() {
+        return unitsByItemId.isEmpty();
+    }
+}
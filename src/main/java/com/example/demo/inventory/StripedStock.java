@@ -0,0 +1,104 @@
+package com.example.demo.inventory;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A non-negative count of units spread over several cells, so that threads
+ * reserving the same item mostly update different cache lines.
+ *
+ * A reservation takes units from its thread's home cell first and from the
+ * other cells as needed, each take a compare-and-set that never drives a
+ * cell below zero. The total therefore never goes negative and no unit is
+ * handed out twice. If the cells cannot cover a reservation, whatever was
+ * taken is put back and the reservation fails; a reservation racing with
+ * one that is about to fail may see the stock as short for that moment.
+ */
+public final class StripedStock {
+
+    // Cells sit 16 longs (128 bytes) apart so neighbours never share a cache
+    // line, even with adjacent-line prefetching.
+    private static final int PAD = 16;
+
+    private final AtomicLongArray cells;
+
+    private final int stripes;
+
+    public StripedStock(int stripes) {
+        this.stripes = stripes;
+        this.cells = new AtomicLongArray(stripes * PAD);
+    }
+
+    public boolean tryReserve(long units) {
+        if (units <= 0) {
+            return true;
+        }
+        int home = home();
+        long taken = 0;
+        for (int i = 0; i < stripes && taken < units; i++) {
+            int index = ((home + i) % stripes) * PAD;
+            while (true) {
+                long current = cells.get(index);
+                if (current <= 0) {
+                    break;
+                }
+                long take = Math.min(current, units - taken);
+                if (cells.compareAndSet(index, current, current - take)) {
+                    taken += take;
+                    break;
+                }
+            }
+        }
+        if (taken == units) {
+            return true;
+        }
+        if (taken > 0) {
+            release(taken);
+        }
+        return false;
+    }
+
+    public void release(long units) {
+        cells.addAndGet(home() * PAD, units);
+    }
+
+    /**
+     * Adds units spread evenly over the cells.
+     */
+    public void deposit(long units) {
+        long share = units / stripes;
+        long remainder = units % stripes;
+        for (int i = 0; i < stripes; i++) {
+            long add = share + (i < remainder ? 1 : 0);
+            if (add > 0) {
+                cells.addAndGet(i * PAD, add);
+            }
+        }
+    }
+
+    /**
+     * Removes and returns every unit currently in the cells.
+     */
+    public long drain() {
+        long drained = 0;
+        for (int i = 0; i < stripes; i++) {
+            drained += cells.getAndSet(i * PAD, 0);
+        }
+        return drained;
+    }
+
+    /**
+     * The units available right now; a snapshot, not a guarantee.
+     */
+    public long available() {
+        long sum = 0;
+        for (int i = 0; i < stripes; i++) {
+            sum += cells.get(i * PAD);
+        }
+        return sum;
+    }
+
+    private int home() {
+        long id = Thread.currentThread().getId();
+        return (int) ((id ^ (id >>> 16)) % stripes);
+    }
+}
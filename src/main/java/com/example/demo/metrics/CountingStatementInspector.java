@@ -0,0 +1,16 @@
+package com.example.demo.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Counts every statement Hibernate prepares; registered through
+ * {@code hibernate.session_factory.statement_inspector}.
+ */
+public class CountingStatementInspector implements StatementInspector {
+
+    @Override
+    public String inspect(String sql) {
+        QueryCounter.statementExecuted();
+        return sql;
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.demo.metrics;
+
+import java.io.Serializable;
+
+import org.hibernate.EmptyInterceptor;
+import org.hibernate.type.Type;
+
+/**
+ * Counts every entity Hibernate hydrates; registered through
+ * {@code hibernate.session_factory.interceptor}.
+ */
+public class EntityLoadCountingInterceptor extends EmptyInterceptor {
+
+    @Override
+    public boolean onLoad(Object entity, Serializable id, Object[] state, String[] propertyNames, Type[] types) {
+        QueryCounter.entityLoaded();
+        return false;
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.demo.metrics;
+
+/**
+ * Per-thread count of SQL statements executed and entities loaded, fed by
+ * {@link CountingStatementInspector} and {@link EntityLoadCountingInterceptor}.
+ * Counting only happens between {@link #start()} and {@link #stop()}, which
+ * {@link RequestQueryMetricsInterceptor} calls around each web request.
+ */
+public final class QueryCounter {
+
+    private static final ThreadLocal<Counts> CURRENT = new ThreadLocal<>();
+
+    private QueryCounter() {
+    }
+
+    public static void start() {
+        CURRENT.set(new Counts());
+    }
+
+    /**
+     * Ends counting on this thread and returns what was counted, or
+     * {@code null} if counting was not started.
+     */
+    public static Counts stop() {
+        Counts counts = CURRENT.get();
+        CURRENT.remove();
+        return counts;
+    }
+
+    public static Counts current() {
+        return CURRENT.get();
+    }
+
+    static void statementExecuted() {
+        Counts counts = CURRENT.get();
+        if (counts != null) {
+            counts.statements++;
+        }
+    }
+
+    static void entityLoaded() {
+        Counts counts = CURRENT.get();
+        if (counts != null) {
+            counts.entitiesLoaded++;
+        }
+    }
+
+    public static final class Counts {
+
+        private int statements;
+
+        private int entitiesLoaded;
+
+        public int getStatements() {
+            return statements;
+        }
+
+        public int getEntitiesLoaded() {
+            return entitiesLoaded;
+        }
+    }
+}
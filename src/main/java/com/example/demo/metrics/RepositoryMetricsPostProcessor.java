@@ -0,0 +1,84 @@
+package com.example.demo.metrics;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.Advised;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.repository.Repository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Times every call made through a Spring Data repository as
+ * {@code repository.invocations}, tagged with the repository interface,
+ * the method and whether it threw.
+ */
+public class RepositoryMetricsPostProcessor implements BeanPostProcessor {
+
+    private final ObjectProvider<MeterRegistry> registry;
+
+    public RepositoryMetricsPostProcessor(ObjectProvider<MeterRegistry> registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof Repository && bean instanceof Advised) {
+            Advised advised = (Advised) bean;
+            advised.addAdvice(0, new TimingInterceptor(repositoryName(advised, beanName)));
+        }
+        return bean;
+    }
+
+    // The application's own interface, rather than the Spring Data interface
+    // that happens to declare a method such as findById.
+    private static String repositoryName(Advised advised, String beanName) {
+        for (Class<?> type : advised.getProxiedInterfaces()) {
+            if (Repository.class.isAssignableFrom(type) && !type.getName().startsWith("org.springframework.")) {
+                return type.getSimpleName();
+            }
+        }
+        return beanName;
+    }
+
+    private final class TimingInterceptor implements MethodInterceptor {
+
+        private final String repository;
+
+        private final ConcurrentHashMap<Method, Timer[]> timers = new ConcurrentHashMap<>();
+
+        private TimingInterceptor(String repository) {
+            this.repository = repository;
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            long start = System.nanoTime();
+            boolean failed = true;
+            try {
+                Object result = invocation.proceed();
+                failed = false;
+                return result;
+            } finally {
+                Timer[] pair = timers.computeIfAbsent(invocation.getMethod(), this::register);
+                pair[failed ? 1 : 0].record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        private Timer[] register(Method method) {
+            MeterRegistry meterRegistry = registry.getObject();
+            return new Timer[] {
+                    Timer.builder("repository.invocations").tag("repository", repository)
+                            .tag("method", method.getName()).tag("outcome", "success").register(meterRegistry),
+                    Timer.builder("repository.invocations").tag("repository", repository)
+                            .tag("method", method.getName()).tag("outcome", "error").register(meterRegistry)
+            };
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.demo.metrics;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Records how many SQL statements and entity loads each request caused,
+ * including lazy loads made while the response is serialized.
+ */
+public class RequestQueryMetricsInterceptor implements HandlerInterceptor {
+
+    private final MeterRegistry registry;
+
+    public RequestQueryMetricsInterceptor(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        QueryCounter.start();
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        QueryCounter.Counts counts = QueryCounter.stop();
+        if (counts == null) {
+            return;
+        }
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+        DistributionSummary.builder("hibernate.request.statements")
+                .tag("method", request.getMethod()).tag("uri", uri)
+                .register(registry).record(counts.getStatements());
+        DistributionSummary.builder("hibernate.request.entities.loaded")
+                .tag("method", request.getMethod()).tag("uri", uri)
+                .register(registry).record(counts.getEntitiesLoaded());
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.demo.model;
+
+import com.example.demo.model.persistence.Item;
+
+/**
+ * The changes clients can make to a cart, whether the cart is the
+ * {@link com.example.demo.model.persistence.Cart} entity or held in memory.
+ * Line prices are captured when an item is first added.
+ */
+public interface CartContents {
+
+    void addItem(Item item, int quantity);
+
+    void removeItem(Item item, int quantity);
+
+    void setQuantity(Item item, int quantity);
+}
@@ -0,0 +1,42 @@
+package com.example.demo.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Money amounts held as a {@code long} count of minor units (cents), so that
+ * cart and order arithmetic allocates nothing. Amounts are converted to and
+ * from {@link BigDecimal} only at the JSON and database boundary.
+ *
+ * Amounts with more than two decimal places are rounded half-even on the way
+ * in; arithmetic on minor units is exact and fails on overflow rather than
+ * wrapping.
+ */
+public final class Money {
+
+    public static final int SCALE = 2;
+
+    public static final RoundingMode ROUNDING = RoundingMode.HALF_EVEN;
+
+    private Money() {
+    }
+
+    public static long toMinor(BigDecimal amount) {
+        if (amount == null) {
+            return 0L;
+        }
+        return amount.setScale(SCALE, ROUNDING).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal toDecimal(long minor) {
+        return BigDecimal.valueOf(minor, SCALE);
+    }
+
+    public static long add(long a, long b) {
+        return Math.addExact(a, b);
+    }
+
+    public static long times(long minor, int quantity) {
+        return Math.multiplyExact(minor, (long) quantity);
+    }
+}
@@ -1,51 +1,81 @@
 package com.example.demo.model.persistence;
 
 import java.math.BigDecimal;
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Set;
 
+import javax.persistence.CascadeType;
 import javax.persistence.Column;
+import javax.persistence.Convert;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
-import javax.persistence.ManyToMany;
 import javax.persistence.OneToMany;
 import javax.persistence.OneToOne;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.Transient;
+import javax.persistence.Version;
 
+import com.example.demo.model.CartContents;
+import com.example.demo.model.Money;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 @Entity
 @Table(name = "cart")
-public class Cart {
-	
+public class Cart implements CartContents {
+
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cart_seq")
+	@SequenceGenerator(name = "cart_seq", sequenceName = "cart_seq", allocationSize = 50)
 	@JsonProperty
 	@Column
 	private Long id;
-	
-	@ManyToMany
+
+	@Version
+	@JsonIgnore
+	private long version;
+
+	@OneToMany(mappedBy = "cart", cascade = CascadeType.ALL, orphanRemoval = true)
 	@JsonProperty
-	@Column
-    private List<Item> items;
-	
+	private Set<CartItem> lines = new LinkedHashSet<>();
+
 	@OneToOne(mappedBy = "cart")
 	@JsonProperty
     private User user;
-	
+
+	// Minor units; see Money.
 	@Column
+	@Convert(converter = MoneyConverter.class)
+	private long total;
+
+	// Lookup of lines by item id; rebuilt whenever the backing collection is replaced.
+	@Transient
+	private Map<Long, CartItem> linesByItemId;
+
+	@Transient
+	private Set<CartItem> indexedLines;
+
 	@JsonProperty
-	private BigDecimal total;
-	
 	public BigDecimal getTotal() {
-		return total;
+		return Money.toDecimal(total);
 	}
 
 	public void setTotal(BigDecimal total) {
+		this.total = Money.toMinor(total);
+	}
+
+	@JsonIgnore
+	public long getTotalMinor() {
+		return total;
+	}
+
+	public void setTotalMinor(long total) {
 		this.total = total;
 	}
 
@@ -61,37 +91,122 @@ public class Cart {
 		return id;
 	}
 
+	public long getVersion() {
+		return version;
+	}
+
 	public void setId(Long id) {
 		this.id = id;
 	}
 
-	public List<Item> getItems() {
-		return items;
+	public Set<CartItem> getLines() {
+		return lines;
+	}
+
+	public void setLines(Set<CartItem> lines) {
+		this.lines = lines;
 	}
 
-	public void setItems(List<Item> items) {
-		this.items = items;
+	public int getQuantity(Long itemId) {
+		CartItem line = index().get(itemId);
+		return line == null ? 0 : line.getQuantity();
 	}
-	
+
 	public void addItem(Item item) {
-		if(items == null) {
-			items = new ArrayList<>();
+		addItem(item, 1);
+	}
+
+	@Override
+	public void addItem(Item item, int quantity) {
+		if(quantity <= 0) {
+			return;
 		}
-		items.add(item);
-		if(total == null) {
-			total = new BigDecimal(0);
+		CartItem line = index().get(item.getId());
+		if(line == null) {
+			line = new CartItem(this, item);
+			lines.add(line);
+			linesByItemId.put(item.getId(), line);
 		}
-		total = total.add(item.getPrice());
+		line.setQuantity(line.getQuantity() + quantity);
+		total = Money.add(total, Money.times(line.getUnitPriceMinor(), quantity));
 	}
-	
+
 	public void removeItem(Item item) {
-		if(items == null) {
-			items = new ArrayList<>();
+		removeItem(item, 1);
+	}
+
+	@Override
+	public void removeItem(Item item, int quantity) {
+		CartItem line = index().get(item.getId());
+		if(line == null || quantity <= 0) {
+			return;
+		}
+		int removed = Math.min(quantity, line.getQuantity());
+		line.setQuantity(line.getQuantity() - removed);
+		if(line.getQuantity() == 0) {
+			lines.remove(line);
+			linesByItemId.remove(item.getId());
+		}
+		total = Money.add(total, -Money.times(line.getUnitPriceMinor(), removed));
+	}
+
+	@Override
+	public void setQuantity(Item item, int quantity) {
+		int delta = quantity - getQuantity(item.getId());
+		if(delta > 0) {
+			addItem(item, delta);
+		} else if(delta < 0) {
+			removeItem(item, -delta);
+		}
+	}
+
+	/**
+	 * Sets a line to exactly the given quantity and unit price, removing it at
+	 * zero. Leaves the total alone; used to write back a cart whose lines and
+	 * total were computed elsewhere.
+	 */
+	public void putLine(Item item, int quantity, long unitPriceMinor) {
+		CartItem line = index().get(item.getId());
+		if(quantity <= 0) {
+			if(line != null) {
+				lines.remove(line);
+				linesByItemId.remove(item.getId());
+			}
+			return;
+		}
+		if(line == null) {
+			line = new CartItem(this, item, unitPriceMinor);
+			lines.add(line);
+			linesByItemId.put(item.getId(), line);
+		}
+		line.setQuantity(quantity);
+	}
+
+	/**
+	 * Removes every line whose item is not among the given ids. Like
+	 * {@link #putLine}, leaves the total alone.
+	 */
+	public void retainItems(Collection<Long> itemIds) {
+		index().keySet().removeIf(itemId -> {
+			if(itemIds.contains(itemId)) {
+				return false;
+			}
+			lines.remove(linesByItemId.get(itemId));
+			return true;
+		});
+	}
+
+	private Map<Long, CartItem> index() {
+		if(lines == null) {
+			lines = new LinkedHashSet<>();
 		}
-		items.remove(item);
-		if(total == null) {
-			total = new BigDecimal(0);
+		if(linesByItemId == null || indexedLines != lines) {
+			linesByItemId = new HashMap<>();
+			for(CartItem line : lines) {
+				linesByItemId.put(line.getItem().getId(), line);
+			}
+			indexedLines = lines;
 		}
-		total = total.subtract(item.getPrice());
+		return linesByItemId;
 	}
 }
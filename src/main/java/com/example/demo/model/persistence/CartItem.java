@@ -0,0 +1,110 @@
+package com.example.demo.model.persistence;
+
+import java.math.BigDecimal;
+
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+
+import com.example.demo.model.Money;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * One line of a {@link Cart}: an item, the number of units and the unit price
+ * captured when the item was first added. A cart holds at most one line per item.
+ */
+@Entity
+@Table(name = "cart_item", uniqueConstraints = @UniqueConstraint(columnNames = { "cart_id", "item_id" }))
+public class CartItem {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cart_item_seq")
+	@SequenceGenerator(name = "cart_item_seq", sequenceName = "cart_item_seq", allocationSize = 50)
+	@JsonIgnore
+	private Long id;
+
+	@ManyToOne(optional = false)
+	@JoinColumn(name = "cart_id", nullable = false)
+	@JsonIgnore
+	private Cart cart;
+
+	@ManyToOne(optional = false)
+	@JoinColumn(name = "item_id", nullable = false)
+	@JsonProperty
+	private Item item;
+
+	@Column(nullable = false)
+	@JsonProperty
+	private int quantity;
+
+	@Column(name = "unit_price", nullable = false)
+	@Convert(converter = MoneyConverter.class)
+	private long unitPrice;
+
+	protected CartItem() {
+	}
+
+	public CartItem(Cart cart, Item item) {
+		this(cart, item, Money.toMinor(item.getPrice()));
+	}
+
+	public CartItem(Cart cart, Item item, long unitPriceMinor) {
+		this.cart = cart;
+		this.item = item;
+		this.unitPrice = unitPriceMinor;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public Cart getCart() {
+		return cart;
+	}
+
+	public Item getItem() {
+		return item;
+	}
+
+	public int getQuantity() {
+		return quantity;
+	}
+
+	public void setQuantity(int quantity) {
+		this.quantity = quantity;
+	}
+
+	@JsonProperty
+	public BigDecimal getUnitPrice() {
+		return Money.toDecimal(unitPrice);
+	}
+
+	@JsonIgnore
+	public long getUnitPriceMinor() {
+		return unitPrice;
+	}
+
+	@Override
+	public int hashCode() {
+		return item == null ? 0 : item.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null || getClass() != obj.getClass())
+			return false;
+		CartItem other = (CartItem) obj;
+		return item == null ? other.item == null : item.equals(other.item);
+	}
+}
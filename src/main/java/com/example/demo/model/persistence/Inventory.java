@@ -0,0 +1,50 @@
+package com.example.demo.model.persistence;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * Stock of one item. {@code onHand} is the number of units not yet sold;
+ * {@code leased} is how many of those application instances currently hold
+ * in memory to sell from. Items without a row are not stock-tracked.
+ */
+@Entity
+@Table(name = "inventory")
+public class Inventory {
+
+	@Id
+	@Column(name = "item_id")
+	private Long itemId;
+
+	@Column(name = "on_hand", nullable = false)
+	private long onHand;
+
+	@Column(nullable = false)
+	private long leased;
+
+	protected Inventory() {
+	}
+
+	public Inventory(Long itemId, long onHand) {
+		this.itemId = itemId;
+		this.onHand = onHand;
+	}
+
+	public Long getItemId() {
+		return itemId;
+	}
+
+	public long getOnHand() {
+		return onHand;
+	}
+
+	public void setOnHand(long onHand) {
+		this.onHand = onHand;
+	}
+
+	public long getLeased() {
+		return leased;
+	}
+}
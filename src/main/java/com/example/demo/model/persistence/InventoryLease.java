@@ -0,0 +1,97 @@
+package com.example.demo.model.persistence;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.IdClass;
+import javax.persistence.Table;
+
+/**
+ * Units of one item that one application instance holds, counted in
+ * {@link Inventory#getLeased()}. The instance pushes {@code expiresAt}
+ * forward while it runs; once it has passed, any instance may hand the
+ * units back to the table.
+ */
+@Entity
+@Table(name = "inventory_lease")
+@IdClass(InventoryLease.Key.class)
+public class InventoryLease {
+
+	@Id
+	@Column(name = "instance_id", length = 64)
+	private String instanceId;
+
+	@Id
+	@Column(name = "item_id")
+	private Long itemId;
+
+	@Column(nullable = false)
+	private long units;
+
+	// Epoch milliseconds.
+	@Column(name = "expires_at", nullable = false)
+	private long expiresAt;
+
+	protected InventoryLease() {
+	}
+
+	public InventoryLease(String instanceId, Long itemId, long units, long expiresAt) {
+		this.instanceId = instanceId;
+		this.itemId = itemId;
+		this.units = units;
+		this.expiresAt = expiresAt;
+	}
+
+	public String getInstanceId() {
+		return instanceId;
+	}
+
+	public Long getItemId() {
+		return itemId;
+	}
+
+	public long getUnits() {
+		return units;
+	}
+
+	public long getExpiresAt() {
+		return expiresAt;
+	}
+
+	public static class Key implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private String instanceId;
+
+		private Long itemId;
+
+		public Key() {
+		}
+
+		public Key(String instanceId, Long itemId) {
+			this.instanceId = instanceId;
+			this.itemId = itemId;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if(this == o) {
+				return true;
+			}
+			if(!(o instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) o;
+			return Objects.equals(instanceId, other.instanceId) && Objects.equals(itemId, other.itemId);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(instanceId, itemId);
+		}
+	}
+}
@@ -0,0 +1,25 @@
+package com.example.demo.model.persistence;
+
+import java.math.BigDecimal;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+
+import com.example.demo.model.Money;
+
+/**
+ * Stores minor-unit {@code long} amounts in the existing decimal columns.
+ */
+@Converter
+public class MoneyConverter implements AttributeConverter<Long, BigDecimal> {
+
+	@Override
+	public BigDecimal convertToDatabaseColumn(Long minor) {
+		return minor == null ? null : Money.toDecimal(minor);
+	}
+
+	@Override
+	public Long convertToEntityAttribute(BigDecimal amount) {
+		return Money.toMinor(amount);
+	}
+}
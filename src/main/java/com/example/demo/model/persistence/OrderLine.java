@@ -0,0 +1,76 @@
+package com.example.demo.model.persistence;
+
+import java.math.BigDecimal;
+
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Embeddable;
+
+import com.example.demo.model.Money;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * A line of a submitted order. Name and price are copied from the item at
+ * submission time so the order reads the same after the catalog changes.
+ */
+@Embeddable
+public class OrderLine {
+
+	@Column(name = "item_id", nullable = false)
+	@JsonProperty
+	private Long itemId;
+
+	@Column(nullable = false)
+	@JsonProperty
+	private String name;
+
+	@Column(name = "unit_price", nullable = false)
+	@Convert(converter = MoneyConverter.class)
+	private long unitPrice;
+
+	@Column(nullable = false)
+	@JsonProperty
+	private int quantity;
+
+	protected OrderLine() {
+	}
+
+	public OrderLine(Long itemId, String name, BigDecimal unitPrice, int quantity) {
+		this(itemId, name, Money.toMinor(unitPrice), quantity);
+	}
+
+	public OrderLine(Long itemId, String name, long unitPriceMinor, int quantity) {
+		this.itemId = itemId;
+		this.name = name;
+		this.unitPrice = unitPriceMinor;
+		this.quantity = quantity;
+	}
+
+	public static OrderLine of(CartItem line) {
+		return new OrderLine(line.getItem().getId(), line.getItem().getName(), line.getUnitPriceMinor(),
+				line.getQuantity());
+	}
+
+	public Long getItemId() {
+		return itemId;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	@JsonProperty
+	public BigDecimal getUnitPrice() {
+		return Money.toDecimal(unitPrice);
+	}
+
+	@JsonIgnore
+	public long getUnitPriceMinor() {
+		return unitPrice;
+	}
+
+	public int getQuantity() {
+		return quantity;
+	}
+}
@@ -1,21 +1,26 @@
 package com.example.demo.model.persistence;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
-import javax.persistence.CascadeType;
+import javax.persistence.CollectionTable;
 import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.ElementCollection;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
-import javax.persistence.JoinTable;
-import javax.persistence.ManyToMany;
 import javax.persistence.ManyToOne;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 
+import org.hibernate.annotations.BatchSize;
+
+import com.example.demo.model.Money;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 @Entity
@@ -23,24 +28,30 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 public class UserOrder {
 
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_order_seq")
+	@SequenceGenerator(name = "user_order_seq", sequenceName = "user_order_seq", allocationSize = 50)
 	@JsonProperty
 	@Column
 	private Long id;
 	
-	@ManyToMany(cascade = CascadeType.ALL)
+	// Batching only helps when several orders are in the session when lines
+	// are first read, as in the export's blocks; history reads a projection
+	// of the lines instead and never loads this collection.
+	@ElementCollection
+	@CollectionTable(name = "order_line", joinColumns = @JoinColumn(name = "order_id"))
+	@BatchSize(size = 100)
 	@JsonProperty
-	@Column
-    private List<Item> items;
+	private List<OrderLine> lines = new ArrayList<>();
 	
 	@ManyToOne
 	@JoinColumn(name="user_id", nullable = false, referencedColumnName = "id")
 	@JsonProperty
     private User user;
 	
-	@JsonProperty
+	// Minor units; see Money.
 	@Column
-	private BigDecimal total;
+	@Convert(converter = MoneyConverter.class)
+	private long total;
 
 	public Long getId() {
 		return id;
@@ -50,12 +61,12 @@ public class UserOrder {
 		this.id = id;
 	}
 
-	public List<Item> getItems() {
-		return items;
+	public List<OrderLine> getLines() {
+		return lines;
 	}
 
-	public void setItems(List<Item> items) {
-		this.items = items;
+	public void setLines(List<OrderLine> lines) {
+		this.lines = lines;
 	}
 
 	public User getUser() {
@@ -66,18 +77,32 @@ public class UserOrder {
 		this.user = user;
 	}
 	
+	@JsonProperty
 	public BigDecimal getTotal() {
-		return total;
+		return Money.toDecimal(total);
 	}
 
 	public void setTotal(BigDecimal total) {
+		this.total = Money.toMinor(total);
+	}
+
+	@JsonIgnore
+	public long getTotalMinor() {
+		return total;
+	}
+
+	public void setTotalMinor(long total) {
 		this.total = total;
 	}
 
 	public static UserOrder createFromCart(Cart cart) {
 		UserOrder order = new UserOrder();
-		order.setItems(cart.getItems().stream().collect(Collectors.toList()));
-		order.setTotal(cart.getTotal());
+		List<OrderLine> lines = new ArrayList<>();
+		for(CartItem line : cart.getLines()) {
+			lines.add(OrderLine.of(line));
+		}
+		order.setLines(lines);
+		order.setTotalMinor(cart.getTotalMinor());
 		order.setUser(cart.getUser());
 		return order;
 	}
@@ -0,0 +1,13 @@
+package com.example.demo.model.persistence.repositories;
+
+import com.example.demo.model.persistence.Cart;
+
+public interface CartLocking {
+
+	/**
+	 * Re-reads the cart under a row lock held until the current transaction
+	 * ends, so a concurrent update of the same cart waits and then sees this
+	 * one's changes instead of overwriting them.
+	 */
+	void lockForUpdate(Cart cart);
+}
@@ -0,0 +1,18 @@
+package com.example.demo.model.persistence.repositories;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.PersistenceContext;
+
+import com.example.demo.model.persistence.Cart;
+
+public class CartLockingImpl implements CartLocking {
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Override
+	public void lockForUpdate(Cart cart) {
+		entityManager.refresh(cart, LockModeType.PESSIMISTIC_WRITE);
+	}
+}
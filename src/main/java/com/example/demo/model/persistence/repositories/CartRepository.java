@@ -1,10 +1,22 @@
 package com.example.demo.model.persistence.repositories;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 import com.example.demo.model.persistence.Cart;
-import com.example.demo.model.persistence.User;
 
-public interface CartRepository extends JpaRepository<Cart, Long> {
-	Cart findByUser(User user);
+public interface CartRepository extends JpaRepository<Cart, Long>, CartLocking {
+
+	// Cart responses serialize the user and every line's item, so load them
+	// with the cart rather than one query per line.
+	@Override
+	@EntityGraph(attributePaths = { "user", "lines", "lines.item" })
+	Optional<Cart> findById(Long id);
+
+	@EntityGraph(attributePaths = { "lines", "lines.item" })
+	List<Cart> findByIdIn(Collection<Long> ids);
 }
@@ -0,0 +1,49 @@
+package com.example.demo.model.persistence.repositories;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.example.demo.model.persistence.InventoryLease;
+
+// Every change to a lease row goes with the matching change to
+// inventory.leased in the same transaction; see InventoryService.
+public interface InventoryLeaseRepository extends JpaRepository<InventoryLease, InventoryLease.Key> {
+
+	List<InventoryLease> findByInstanceId(String instanceId);
+
+	List<InventoryLease> findByExpiresAtLessThan(long now);
+
+	// Returns 0 if the instance holds no row for the item yet.
+	@Modifying
+	@Query("update InventoryLease l set l.units = l.units + :units, l.expiresAt = :expiresAt"
+			+ " where l.instanceId = :instanceId and l.itemId = :itemId")
+	int extend(@Param("instanceId") String instanceId, @Param("itemId") Long itemId,
+			@Param("units") long units, @Param("expiresAt") long expiresAt);
+
+	// Returns 0 if the lease was reclaimed from under the instance.
+	@Modifying
+	@Query("update InventoryLease l set l.units = l.units - :units"
+			+ " where l.instanceId = :instanceId and l.itemId = :itemId and l.units >= :units")
+	int shrink(@Param("instanceId") String instanceId, @Param("itemId") Long itemId,
+			@Param("units") long units);
+
+	@Modifying
+	@Query("update InventoryLease l set l.expiresAt = :expiresAt where l.instanceId = :instanceId")
+	int renew(@Param("instanceId") String instanceId, @Param("expiresAt") long expiresAt);
+
+	// Matches only the row as it was read, so a lease renewed or changed in
+	// between is left alone.
+	@Modifying
+	@Query("delete from InventoryLease l where l.instanceId = :instanceId and l.itemId = :itemId"
+			+ " and l.units = :units and l.expiresAt = :expiresAt")
+	int remove(@Param("instanceId") String instanceId, @Param("itemId") Long itemId,
+			@Param("units") long units, @Param("expiresAt") long expiresAt);
+
+	@Modifying
+	@Query("delete from InventoryLease l where l.instanceId = :instanceId and l.units = 0")
+	int removeEmpty(@Param("instanceId") String instanceId);
+}
@@ -0,0 +1,38 @@
+package com.example.demo.model.persistence.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.example.demo.model.persistence.Inventory;
+
+// Stock only ever moves through single-statement relative updates, so
+// several application instances can share the table without locking rows
+// for longer than one statement.
+public interface InventoryRepository extends JpaRepository<Inventory, Long> {
+
+	@Query("select i.onHand - i.leased from Inventory i where i.itemId = :itemId")
+	Long findUnleased(@Param("itemId") Long itemId);
+
+	// Fails (returns 0) if fewer than the requested units are free.
+	@Modifying
+	@Query("update Inventory i set i.leased = i.leased + :units"
+			+ " where i.itemId = :itemId and i.onHand - i.leased >= :units")
+	int lease(@Param("itemId") Long itemId, @Param("units") long units);
+
+	@Modifying
+	@Query("update Inventory i set i.leased = i.leased - :units where i.itemId = :itemId")
+	int returnLease(@Param("itemId") Long itemId, @Param("units") long units);
+
+	@Modifying
+	@Query("update Inventory i set i.onHand = i.onHand - :units, i.leased = i.leased - :units"
+			+ " where i.itemId = :itemId")
+	int recordSold(@Param("itemId") Long itemId, @Param("units") long units);
+
+	// For units sold from a lease that has since been reclaimed, and so are
+	// no longer counted in leased.
+	@Modifying
+	@Query("update Inventory i set i.onHand = i.onHand - :units where i.itemId = :itemId")
+	int recordSoldUnleased(@Param("itemId") Long itemId, @Param("units") long units);
+}
@@ -3,10 +3,16 @@ package com.example.demo.model.persistence.repositories;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
-import com.example.demo.model.persistence.User;
 import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.responses.OrderHistoryRow;
 
 public interface OrderRepository extends JpaRepository<UserOrder, Long> {
-	List<UserOrder> findByUser(User user);
+
+	// Only the columns the history response shows, one row per line.
+	@Query("select new com.example.demo.model.responses.OrderHistoryRow("
+			+ "o.id, o.total, l.itemId, l.name, l.unitPrice, l.quantity)"
+			+ " from UserOrder o left join o.lines l where o.user.id = ?1 order by o.id")
+	List<OrderHistoryRow> findHistoryByUserId(long userId);
 }
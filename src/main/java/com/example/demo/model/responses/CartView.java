@@ -0,0 +1,50 @@
+package com.example.demo.model.responses;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.example.demo.model.Money;
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.CartItem;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class CartView {
+
+	@JsonProperty
+	private final Long id;
+
+	@JsonProperty
+	private final List<LineView> lines;
+
+	private final long total;
+
+	public CartView(Long id, List<LineView> lines, long totalMinor) {
+		this.id = id;
+		this.lines = lines;
+		this.total = totalMinor;
+	}
+
+	public static CartView of(Cart cart) {
+		List<LineView> lines = new ArrayList<>(cart.getLines().size());
+		for(CartItem line : cart.getLines()) {
+			lines.add(new LineView(line.getItem().getId(), line.getItem().getName(), line.getUnitPriceMinor(),
+					line.getQuantity()));
+		}
+		return new CartView(cart.getId(), lines, cart.getTotalMinor());
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public List<LineView> getLines() {
+		return lines;
+	}
+
+	@JsonProperty
+	public BigDecimal getTotal() {
+		return Money.toDecimal(total);
+	}
+
+}
@@ -0,0 +1,117 @@
+package com.example.demo.model.responses;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Outcome of a catalog import: row counts by outcome and the first
+ * {@code maxErrors} rejected rows with the reason. Rows are numbered by the
+ * line they start on.
+ */
+public class ImportReport {
+
+	@JsonProperty
+	private long rows;
+
+	@JsonProperty
+	private long inserted;
+
+	@JsonProperty
+	private long updated;
+
+	@JsonProperty
+	private long unchanged;
+
+	@JsonProperty
+	private long rejected;
+
+	@JsonProperty
+	private final List<RowError> errors = new ArrayList<>();
+
+	@JsonProperty
+	private boolean errorsTruncated;
+
+	private final int maxErrors;
+
+	public ImportReport(int maxErrors) {
+		this.maxErrors = maxErrors;
+	}
+
+	public void row() {
+		rows++;
+	}
+
+	public void inserted() {
+		inserted++;
+	}
+
+	public void updated() {
+		updated++;
+	}
+
+	public void unchanged() {
+		unchanged++;
+	}
+
+	public void reject(long line, String message) {
+		rejected++;
+		if(errors.size() < maxErrors) {
+			errors.add(new RowError(line, message));
+		} else {
+			errorsTruncated = true;
+		}
+	}
+
+	public long getRows() {
+		return rows;
+	}
+
+	public long getInserted() {
+		return inserted;
+	}
+
+	public long getUpdated() {
+		return updated;
+	}
+
+	public long getUnchanged() {
+		return unchanged;
+	}
+
+	public long getRejected() {
+		return rejected;
+	}
+
+	public List<RowError> getErrors() {
+		return errors;
+	}
+
+	public boolean isErrorsTruncated() {
+		return errorsTruncated;
+	}
+
+	public static class RowError {
+
+		@JsonProperty
+		private final long line;
+
+		@JsonProperty
+		private final String message;
+
+		public RowError(long line, String message) {
+			this.line = line;
+			this.message = message;
+		}
+
+		public long getLine() {
+			return line;
+		}
+
+		public String getMessage() {
+			return message;
+		}
+	}
+
+}
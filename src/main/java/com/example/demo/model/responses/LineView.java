@@ -0,0 +1,49 @@
+package com.example.demo.model.responses;
+
+import java.math.BigDecimal;
+
+import com.example.demo.model.Money;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * One line of a cart or order as returned to clients: the item reference and
+ * the name and price it was added at, without the rest of the item.
+ */
+public class LineView {
+
+	@JsonProperty
+	private final long itemId;
+
+	@JsonProperty
+	private final String name;
+
+	private final long unitPrice;
+
+	@JsonProperty
+	private final int quantity;
+
+	public LineView(long itemId, String name, long unitPriceMinor, int quantity) {
+		this.itemId = itemId;
+		this.name = name;
+		this.unitPrice = unitPriceMinor;
+		this.quantity = quantity;
+	}
+
+	public long getItemId() {
+		return itemId;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	@JsonProperty
+	public BigDecimal getUnitPrice() {
+		return Money.toDecimal(unitPrice);
+	}
+
+	public int getQuantity() {
+		return quantity;
+	}
+
+}
@@ -0,0 +1,54 @@
+package com.example.demo.model.responses;
+
+/**
+ * One row of the order history projection: an order's id and total and one
+ * of its lines, or no line for an empty order. Amounts are in minor units.
+ */
+public class OrderHistoryRow {
+
+	private final Long orderId;
+
+	private final long total;
+
+	private final Long itemId;
+
+	private final String name;
+
+	private final long unitPrice;
+
+	private final int quantity;
+
+	public OrderHistoryRow(Long orderId, Long total, Long itemId, String name, Long unitPrice, Integer quantity) {
+		this.orderId = orderId;
+		this.total = total == null ? 0L : total;
+		this.itemId = itemId;
+		this.name = name;
+		this.unitPrice = unitPrice == null ? 0L : unitPrice;
+		this.quantity = quantity == null ? 0 : quantity;
+	}
+
+	public Long getOrderId() {
+		return orderId;
+	}
+
+	public long getTotal() {
+		return total;
+	}
+
+	public Long getItemId() {
+		return itemId;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public long getUnitPrice() {
+		return unitPrice;
+	}
+
+	public int getQuantity() {
+		return quantity;
+	}
+
+}
@@ -0,0 +1,35 @@
+package com.example.demo.model.responses;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class OrderStatus {
+
+	public enum State {
+		ACCEPTED, PERSISTED, FAILED
+	}
+
+	private final String submissionId;
+
+	private final State state;
+
+	private final Long orderId;
+
+	public OrderStatus(String submissionId, State state, Long orderId) {
+		this.submissionId = submissionId;
+		this.state = state;
+		this.orderId = orderId;
+	}
+
+	public String getSubmissionId() {
+		return submissionId;
+	}
+
+	public State getState() {
+		return state;
+	}
+
+	public Long getOrderId() {
+		return orderId;
+	}
+}
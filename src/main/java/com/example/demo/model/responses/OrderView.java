@@ -0,0 +1,67 @@
+package com.example.demo.model.responses;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.example.demo.model.Money;
+import com.example.demo.model.persistence.OrderLine;
+import com.example.demo.model.persistence.UserOrder;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class OrderView {
+
+	@JsonProperty
+	private final Long id;
+
+	@JsonProperty
+	private final List<LineView> lines;
+
+	private final long total;
+
+	public OrderView(Long id, List<LineView> lines, long totalMinor) {
+		this.id = id;
+		this.lines = lines;
+		this.total = totalMinor;
+	}
+
+	public static OrderView of(UserOrder order) {
+		List<LineView> lines = new ArrayList<>(order.getLines().size());
+		for(OrderLine line : order.getLines()) {
+			lines.add(new LineView(line.getItemId(), line.getName(), line.getUnitPriceMinor(), line.getQuantity()));
+		}
+		return new OrderView(order.getId(), lines, order.getTotalMinor());
+	}
+
+	/**
+	 * Folds history rows, ordered by order id, into one view per order.
+	 */
+	public static List<OrderView> fromRows(List<OrderHistoryRow> rows) {
+		List<OrderView> orders = new ArrayList<>();
+		OrderView current = null;
+		for(OrderHistoryRow row : rows) {
+			if(current == null || !current.id.equals(row.getOrderId())) {
+				current = new OrderView(row.getOrderId(), new ArrayList<>(), row.getTotal());
+				orders.add(current);
+			}
+			if(row.getItemId() != null) {
+				current.lines.add(new LineView(row.getItemId(), row.getName(), row.getUnitPrice(), row.getQuantity()));
+			}
+		}
+		return orders;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public List<LineView> getLines() {
+		return lines;
+	}
+
+	@JsonProperty
+	public BigDecimal getTotal() {
+		return Money.toDecimal(total);
+	}
+
+}
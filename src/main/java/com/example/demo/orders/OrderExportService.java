@@ -0,0 +1,89 @@
+package com.example.demo.orders;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.demo.model.persistence.UserOrder;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * Streams orders as newline-delimited JSON. Orders are read through a
+ * forward-only cursor in id order and written in blocks of {@code fetchSize},
+ * clearing the session after each block, so memory use does not grow with
+ * the number of orders. A whole block is in the session when its lines are
+ * first read, so the lines of up to {@code @BatchSize} orders load with one
+ * statement. The id bounds are inclusive, which lets a client resume an
+ * interrupted export from the last id it received plus one.
+ */
+@Service
+public class OrderExportService {
+
+    private static final byte[] NEWLINE = { '\n' };
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final ObjectWriter writer;
+
+    private final int fetchSize;
+
+    public OrderExportService(ObjectMapper objectMapper,
+                              @Value("${orders.export.fetch-size:500}") int fetchSize) {
+        this.writer = objectMapper.writerFor(UserOrder.class)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        this.fetchSize = fetchSize;
+    }
+
+    @Transactional(readOnly = true)
+    public long export(Long fromId, Long toId, OutputStream out) throws IOException {
+        Session session = entityManager.unwrap(Session.class);
+        ScrollableResults results = session
+                .createQuery("select o from UserOrder o join fetch o.user"
+                        + " where o.id >= :fromId and o.id <= :toId order by o.id", UserOrder.class)
+                .setParameter("fromId", fromId == null ? Long.MIN_VALUE : fromId)
+                .setParameter("toId", toId == null ? Long.MAX_VALUE : toId)
+                .setFetchSize(fetchSize)
+                .setReadOnly(true)
+                .scroll(ScrollMode.FORWARD_ONLY);
+        List<UserOrder> block = new ArrayList<>(fetchSize);
+        long count = 0;
+        try {
+            while (results.next()) {
+                block.add((UserOrder) results.get(0));
+                if (block.size() == fetchSize) {
+                    count += write(block, out);
+                    session.clear();
+                }
+            }
+        } finally {
+            results.close();
+        }
+        count += write(block, out);
+        return count;
+    }
+
+    private int write(List<UserOrder> block, OutputStream out) throws IOException {
+        int written = block.size();
+        for (UserOrder order : block) {
+            writer.writeValue(out, order);
+            out.write(NEWLINE);
+        }
+        out.flush();
+        block.clear();
+        return written;
+    }
+}
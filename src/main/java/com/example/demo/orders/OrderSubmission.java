@@ -0,0 +1,75 @@
+package com.example.demo.orders;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import com.example.demo.inventory.Reservation;
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.CartItem;
+import com.example.demo.model.persistence.OrderLine;
+
+/**
+ * Everything needed to persist an order, captured from the cart at submission
+ * time so that later cart changes do not leak into it.
+ */
+public final class OrderSubmission {
+
+    private final String submissionId;
+
+    private final long userId;
+
+    private final List<OrderLine> lines;
+
+    // Minor units; see Money.
+    private final long totalMinor;
+
+    // Stock held for the order, or null when inventory is not tracked.
+    private final Reservation reservation;
+
+    public OrderSubmission(String submissionId, long userId, List<OrderLine> lines, long totalMinor) {
+        this(submissionId, userId, lines, totalMinor, null);
+    }
+
+    private OrderSubmission(String submissionId, long userId, List<OrderLine> lines, long totalMinor,
+                            Reservation reservation) {
+        this.submissionId = submissionId;
+        this.userId = userId;
+        this.lines = Collections.unmodifiableList(new ArrayList<>(lines));
+        this.totalMinor = totalMinor;
+        this.reservation = reservation;
+    }
+
+    public static OrderSubmission fromCart(Cart cart) {
+        List<OrderLine> lines = new ArrayList<>();
+        for (CartItem line : cart.getLines()) {
+            lines.add(OrderLine.of(line));
+        }
+        return new OrderSubmission(UUID.randomUUID().toString(), cart.getUser().getId(), lines, cart.getTotalMinor());
+    }
+
+    public OrderSubmission withReservation(Reservation reservation) {
+        return new OrderSubmission(submissionId, userId, lines, totalMinor, reservation);
+    }
+
+    public String getSubmissionId() {
+        return submissionId;
+    }
+
+    public long getUserId() {
+        return userId;
+    }
+
+    public List<OrderLine> getLines() {
+        return lines;
+    }
+
+    public long getTotalMinor() {
+        return totalMinor;
+    }
+
+    public Reservation getReservation() {
+        return reservation;
+    }
+}
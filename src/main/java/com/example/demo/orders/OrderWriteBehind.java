@@ -0,0 +1,284 @@
+package com.example.demo.orders;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.inventory.InventoryService;
+import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.persistence.repositories.OrderRepository;
+import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.model.responses.OrderStatus;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Accepts order submissions into a bounded in-memory queue and persists them
+ * from a single writer thread, many orders per transaction.
+ *
+ * A failed batch is retried one order at a time so that a single bad
+ * submission does not take the rest of the batch down with it. Finished
+ * submissions keep their status for {@code orders.write-behind.status-ttl-ms}
+ * so clients can poll for the order id. Submissions still queued when the
+ * application stops are drained before shutdown for as long as the writer
+ * keeps getting through them; if it stalls for
+ * {@code orders.write-behind.stop-timeout-ms}, the rest are dropped, counted
+ * and their stock released. Anything accepted but not yet written is lost if
+ * the process dies. Stock reserved for a submission is confirmed once it is
+ * written and released if it fails.
+ */
+@Component
+@ConditionalOnProperty(name = "orders.write-behind.enabled", havingValue = "true")
+public class OrderWriteBehind {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderWriteBehind.class);
+
+    private final BlockingQueue<OrderSubmission> queue;
+
+    private final ConcurrentHashMap<String, StatusEntry> statuses = new ConcurrentHashMap<>();
+
+    private final UserRepository userRepository;
+
+    private final OrderRepository orderRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    // Only present when inventory.enabled is set. Injected here, not looked
+    // up, so that it is shut down after the queue has been drained.
+    @Autowired(required = false)
+    private InventoryService inventoryService;
+
+    private final int batchSize;
+
+    private final long statusTtlMillis;
+
+    private final long stopTimeoutMillis;
+
+    private final DistributionSummary batchSizes;
+
+    private final Counter dropped;
+
+    private final Timer flushTimer;
+
+    private final Thread writer;
+
+    private volatile boolean running = true;
+
+    // Only touched by the writer thread.
+    private long nextExpiry;
+
+    public OrderWriteBehind(UserRepository userRepository,
+                            OrderRepository orderRepository,
+                            PlatformTransactionManager transactionManager,
+                            MeterRegistry registry,
+                            @Value("${orders.write-behind.queue-capacity:10000}") int queueCapacity,
+                            @Value("${orders.write-behind.batch-size:100}") int batchSize,
+                            @Value("${orders.write-behind.status-ttl-ms:600000}") long statusTtlMillis,
+                            @Value("${orders.write-behind.stop-timeout-ms:30000}") long stopTimeoutMillis) {
+        this.userRepository = userRepository;
+        this.orderRepository = orderRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.statusTtlMillis = statusTtlMillis;
+        this.stopTimeoutMillis = stopTimeoutMillis;
+        this.batchSizes = DistributionSummary.builder("orders.write-behind.batch.size").register(registry);
+        this.flushTimer = Timer.builder("orders.write-behind.flush").register(registry);
+        this.dropped = registry.counter("orders.write-behind.dropped");
+        registry.gauge("orders.write-behind.queue.depth", queue, BlockingQueue::size);
+        this.writer = new Thread(this::run, "order-write-behind");
+        this.writer.setDaemon(true);
+    }
+
+    @PostConstruct
+    public void start() {
+        writer.start();
+    }
+
+    // Waits as long as the queue keeps shrinking, so a long queue on a healthy
+    // database is written in full rather than cut off at a fixed deadline.
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        int remaining = queue.size();
+        while (true) {
+            writer.join(stopTimeoutMillis);
+            if (!writer.isAlive()) {
+                return;
+            }
+            int now = queue.size();
+            if (now == 0 || now >= remaining) {
+                break;
+            }
+            remaining = now;
+        }
+        List<OrderSubmission> abandoned = new ArrayList<>();
+        queue.drainTo(abandoned);
+        log.error("Order writer stalled during shutdown; dropping {} accepted submissions", abandoned.size());
+        dropped.increment(abandoned.size());
+        for (OrderSubmission submission : abandoned) {
+            release(submission);
+            finish(submission, new OrderStatus(submission.getSubmissionId(), OrderStatus.State.FAILED, null));
+        }
+    }
+
+    /**
+     * Queues the submission for writing.
+     *
+     * @return the accepted status, or {@code null} if the queue is full
+     */
+    public OrderStatus submit(OrderSubmission submission) {
+        OrderStatus accepted = new OrderStatus(submission.getSubmissionId(), OrderStatus.State.ACCEPTED, null);
+        statuses.put(submission.getSubmissionId(), new StatusEntry(submission.getUserId(), accepted, Long.MAX_VALUE));
+        if (!running || !queue.offer(submission)) {
+            statuses.remove(submission.getSubmissionId());
+            return null;
+        }
+        return accepted;
+    }
+
+    /**
+     * Returns the status of a submission made by the given user, or
+     * {@code null} if there is none or it has expired.
+     */
+    public OrderStatus getStatus(String submissionId, long userId) {
+        StatusEntry entry = statuses.get(submissionId);
+        return entry == null || entry.userId != userId ? null : entry.status;
+    }
+
+    private void run() {
+        List<OrderSubmission> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                OrderSubmission first = queue.poll(1, TimeUnit.SECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                    flush(batch);
+                    batch.clear();
+                }
+                long now = System.currentTimeMillis();
+                if (now >= nextExpiry) {
+                    expireStatuses(now);
+                    nextExpiry = now + TimeUnit.SECONDS.toMillis(1);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Order writer failed", e);
+                batch.clear();
+            }
+        }
+    }
+
+    // Only the transaction is inside the try: once a batch has committed it
+    // must not be retried, even if completing it afterwards fails.
+    private void flush(List<OrderSubmission> batch) {
+        batchSizes.record(batch.size());
+        long start = System.nanoTime();
+        try {
+            List<UserOrder> saved;
+            try {
+                saved = transactionTemplate.execute(status -> persist(batch));
+            } catch (RuntimeException batchFailure) {
+                log.warn("Order batch of {} failed, retrying individually", batch.size(), batchFailure);
+                for (OrderSubmission submission : batch) {
+                    flushSingle(submission);
+                }
+                return;
+            }
+            complete(batch, saved);
+        } finally {
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void flushSingle(OrderSubmission submission) {
+        List<OrderSubmission> single = Collections.singletonList(submission);
+        List<UserOrder> saved;
+        try {
+            saved = transactionTemplate.execute(status -> persist(single));
+        } catch (RuntimeException e) {
+            log.error("Order submission {} failed", submission.getSubmissionId(), e);
+            release(submission);
+            finish(submission, new OrderStatus(submission.getSubmissionId(), OrderStatus.State.FAILED, null));
+            return;
+        }
+        complete(single, saved);
+    }
+
+    // A reference avoids loading the user; it was resolved when the submission
+    // was accepted.
+    private List<UserOrder> persist(List<OrderSubmission> batch) {
+        List<UserOrder> orders = new ArrayList<>(batch.size());
+        for (OrderSubmission submission : batch) {
+            UserOrder order = new UserOrder();
+            order.setUser(userRepository.getOne(submission.getUserId()));
+            order.setLines(new ArrayList<>(submission.getLines()));
+            order.setTotalMinor(submission.getTotalMinor());
+            orders.add(order);
+        }
+        return orderRepository.saveAll(orders);
+    }
+
+    private void complete(List<OrderSubmission> batch, List<UserOrder> saved) {
+        for (int i = 0; i < batch.size(); i++) {
+            OrderSubmission submission = batch.get(i);
+            if (inventoryService != null && submission.getReservation() != null) {
+                inventoryService.confirm(submission.getReservation());
+            }
+            finish(submission, new OrderStatus(submission.getSubmissionId(), OrderStatus.State.PERSISTED,
+                    saved.get(i).getId()));
+        }
+    }
+
+    private void release(OrderSubmission submission) {
+        if (inventoryService != null && submission.getReservation() != null) {
+            inventoryService.release(submission.getReservation());
+        }
+    }
+
+    private void finish(OrderSubmission submission, OrderStatus status) {
+        statuses.put(submission.getSubmissionId(),
+                new StatusEntry(submission.getUserId(), status, System.currentTimeMillis() + statusTtlMillis));
+    }
+
+    private void expireStatuses(long now) {
+        statuses.values().removeIf(entry -> entry.expiresAt <= now);
+    }
+
+    private static final class StatusEntry {
+
+        private final long userId;
+
+        private final OrderStatus status;
+
+        private final long expiresAt;
+
+        private StatusEntry(long userId, OrderStatus status, long expiresAt) {
+            this.userId = userId;
+            this.status = status;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.demo.security;
+
+import java.util.Collection;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+/**
+ * Spring Security user that also carries the ids written into the JWT.
+ */
+public class AppUserDetails extends User {
+
+    private final long userId;
+
+    private final Long cartId;
+
+    public AppUserDetails(String username, String password, Collection<? extends GrantedAuthority> authorities,
+                          long userId, Long cartId) {
+        super(username, password, authorities);
+        this.userId = userId;
+        this.cartId = cartId;
+    }
+
+    public long getUserId() {
+        return userId;
+    }
+
+    public Long getCartId() {
+        return cartId;
+    }
+}
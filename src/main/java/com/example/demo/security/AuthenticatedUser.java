@@ -0,0 +1,48 @@
+package com.example.demo.security;
+
+/**
+ * Principal resolved from a verified JWT. Controllers can take it as an
+ * {@code @AuthenticationPrincipal} argument to reach the user's id and cart id
+ * without a username lookup. The ids are {@code null} for tokens issued before
+ * they were added as claims.
+ *
+ * Deliberately not a {@link java.security.Principal}: Spring MVC resolves
+ * parameters of that type from the request's own principal, which is the
+ * whole authentication token, before {@code @AuthenticationPrincipal} is
+ * looked at.
+ */
+public class AuthenticatedUser {
+
+    private final String username;
+
+    private final Long userId;
+
+    private final Long cartId;
+
+    public AuthenticatedUser(String username, Long userId, Long cartId) {
+        this.username = username;
+        this.userId = userId;
+        this.cartId = cartId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public Long getCartId() {
+        return cartId;
+    }
+
+    public boolean is(String username) {
+        return this.username.equals(username);
+    }
+
+    @Override
+    public String toString() {
+        return username;
+    }
+}
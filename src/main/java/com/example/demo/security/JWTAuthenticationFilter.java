@@ -1,12 +1,11 @@
 package com.example.demo.security;
 
-import com.auth0.jwt.JWT;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.AuthenticationServiceException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
-import org.springframework.security.core.userdetails.User;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
 import javax.servlet.FilterChain;
@@ -15,21 +14,18 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Date;
 
-import static com.auth0.jwt.algorithms.Algorithm.HMAC512;
-
-import static com.example.demo.security.SecurityConstants.EXPIRATION_TIME;
-import static com.example.demo.security.SecurityConstants.SECRET;
 import static com.example.demo.security.SecurityConstants.HEADER_STRING;
 import static com.example.demo.security.SecurityConstants.TOKEN_PREFIX;
 
 
 public class JWTAuthenticationFilter extends UsernamePasswordAuthenticationFilter {
     private AuthenticationManager authenticationManager;
+    private LoginRateLimiter rateLimiter;
 
-    public JWTAuthenticationFilter(AuthenticationManager authenticationManager) {
+    public JWTAuthenticationFilter(AuthenticationManager authenticationManager, LoginRateLimiter rateLimiter) {
         this.authenticationManager = authenticationManager;
+        this.rateLimiter = rateLimiter;
     }
 
     @Override
@@ -39,27 +35,56 @@ public class JWTAuthenticationFilter extends UsernamePasswordAuthenticationFilte
             com.example.demo.model.persistence.User creds = new ObjectMapper()
                     .readValue(req.getInputStream(), com.example.demo.model.persistence.User.class);
 
+            // Refuse over-limit attempts before the user lookup and password hash.
+            long retryAfter = rateLimiter.tryAcquire(creds.getUsername(), req.getRemoteAddr(),
+                    System.currentTimeMillis());
+            if (retryAfter > 0) {
+                throw new LoginThrottledException(retryAfter);
+            }
+
             return authenticationManager.authenticate(
                     new UsernamePasswordAuthenticationToken(
                             creds.getUsername(),
                             creds.getPassword(),
                             new ArrayList<>())
             );
+        } catch (PasswordHashingRejectedException e) {
+            throw new AuthenticationServiceException(e.getMessage(), e);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
+    @Override
+    protected void unsuccessfulAuthentication(HttpServletRequest req,
+                                              HttpServletResponse res,
+                                              AuthenticationException failed) throws IOException, ServletException {
+        if (failed instanceof LoginThrottledException) {
+            long seconds = (((LoginThrottledException) failed).getRetryAfterMillis() + 999) / 1000;
+            res.setHeader("Retry-After", Long.toString(seconds));
+            res.sendError(429, failed.getMessage());
+            return;
+        }
+        // The password check itself could not run; tell the client to back off
+        // rather than reporting bad credentials.
+        for (Throwable cause = failed; cause != null; cause = cause.getCause()) {
+            if (cause instanceof PasswordHashingRejectedException) {
+                res.setHeader("Retry-After", "1");
+                res.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, cause.getMessage());
+                return;
+            }
+        }
+        super.unsuccessfulAuthentication(req, res, failed);
+    }
+
     @Override
     protected void successfulAuthentication(HttpServletRequest req,
                                             HttpServletResponse res,
                                             FilterChain chain,
                                             Authentication auth) throws IOException, ServletException {
 
-        String token = JWT.create()
-                .withSubject(((User) auth.getPrincipal()).getUsername())
-                .withExpiresAt(new Date(System.currentTimeMillis() + EXPIRATION_TIME))
-                .sign(HMAC512(SECRET.getBytes()));
+        AppUserDetails user = (AppUserDetails) auth.getPrincipal();
+        String token = JWTTokens.create(user.getUsername(), user.getUserId(), user.getCartId());
         res.addHeader(HEADER_STRING, TOKEN_PREFIX + token);
     }
 }
\ No newline at end of file
@@ -1,7 +1,10 @@
 package com.example.demo.security;
 
-import com.auth0.jwt.JWT;
-import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -12,16 +15,26 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
 
-import static com.example.demo.security.SecurityConstants.SECRET;
 import static com.example.demo.security.SecurityConstants.HEADER_STRING;
 import static com.example.demo.security.SecurityConstants.TOKEN_PREFIX;
 
 public class JWTAuthenticationVerificationFilter extends BasicAuthenticationFilter {
 
-    public JWTAuthenticationVerificationFilter(AuthenticationManager authManager) {
+    private final VerifiedTokenCache tokenCache;
+
+    private final Timer verifyTimer;
+
+    private final Counter cacheHits;
+
+    public JWTAuthenticationVerificationFilter(AuthenticationManager authManager, VerifiedTokenCache tokenCache,
+                                               MeterRegistry registry) {
         super(authManager);
+        this.tokenCache = tokenCache;
+        this.verifyTimer = Timer.builder("security.jwt.verify").register(registry);
+        this.cacheHits = Counter.builder("security.jwt.cache.hits").register(registry);
     }
 
     @Override
@@ -35,25 +48,36 @@ public class JWTAuthenticationVerificationFilter extends BasicAuthenticationFilt
             return;
         }
 
-        UsernamePasswordAuthenticationToken authentication = getAuthentication(req);
+        UsernamePasswordAuthenticationToken authentication = getAuthentication(header.substring(TOKEN_PREFIX.length()));
 
         SecurityContextHolder.getContext().setAuthentication(authentication);
         chain.doFilter(req, res);
     }
 
-    private UsernamePasswordAuthenticationToken getAuthentication(HttpServletRequest request) {
-        String token = request.getHeader(HEADER_STRING);
-        if (token != null) {
-            String user = JWT.require(Algorithm.HMAC512(SECRET.getBytes()))
-                    .build()
-                    .verify(token.replace(TOKEN_PREFIX, ""))
-                    .getSubject();
-
-            if (user != null) {
-                return new UsernamePasswordAuthenticationToken(user, null, new ArrayList<>());
-            }
+    // An expired, tampered or malformed token authenticates no one; the request
+    // carries on anonymously and is refused wherever it needs a user.
+    private UsernamePasswordAuthenticationToken getAuthentication(String token) {
+        long now = System.currentTimeMillis();
+        UsernamePasswordAuthenticationToken authentication = tokenCache.get(token, now);
+        if (authentication != null) {
+            cacheHits.increment();
+            return authentication;
+        }
+        long start = System.nanoTime();
+        DecodedJWT jwt;
+        try {
+            jwt = JWTTokens.verify(token);
+        } catch (JWTVerificationException e) {
+            return null;
+        } finally {
+            verifyTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        AuthenticatedUser user = JWTTokens.toPrincipal(jwt);
+        if (user == null) {
             return null;
         }
-        return null;
+        authentication = new UsernamePasswordAuthenticationToken(user, null, Collections.emptyList());
+        tokenCache.put(token, authentication, jwt.getExpiresAt(), now);
+        return authentication;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,52 @@
+package com.example.demo.security;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.interfaces.DecodedJWT;
+
+import java.util.Date;
+
+import static com.example.demo.security.SecurityConstants.CART_ID_CLAIM;
+import static com.example.demo.security.SecurityConstants.EXPIRATION_TIME;
+import static com.example.demo.security.SecurityConstants.SECRET;
+import static com.example.demo.security.SecurityConstants.USER_ID_CLAIM;
+
+/**
+ * Shared signing algorithm and verifier. Both are thread-safe, so they are
+ * built once instead of per request.
+ */
+public final class JWTTokens {
+
+    public static final Algorithm ALGORITHM = Algorithm.HMAC512(SECRET.getBytes());
+
+    private static final JWTVerifier VERIFIER = JWT.require(ALGORITHM).build();
+
+    private JWTTokens() {
+    }
+
+    public static String create(String username, Long userId, Long cartId) {
+        return JWT.create()
+                .withSubject(username)
+                .withClaim(USER_ID_CLAIM, userId)
+                .withClaim(CART_ID_CLAIM, cartId)
+                .withExpiresAt(new Date(System.currentTimeMillis() + EXPIRATION_TIME))
+                .sign(ALGORITHM);
+    }
+
+    public static DecodedJWT verify(String token) {
+        return VERIFIER.verify(token);
+    }
+
+    /**
+     * Principal for a verified token, or {@code null} if it has no subject.
+     */
+    public static AuthenticatedUser toPrincipal(DecodedJWT jwt) {
+        if (jwt.getSubject() == null) {
+            return null;
+        }
+        return new AuthenticatedUser(jwt.getSubject(),
+                jwt.getClaim(USER_ID_CLAIM).asLong(),
+                jwt.getClaim(CART_ID_CLAIM).asLong());
+    }
+}
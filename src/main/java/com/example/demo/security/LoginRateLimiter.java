@@ -0,0 +1,136 @@
+package com.example.demo.security;
+
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Token-bucket admission control for login attempts, keyed both by client
+ * address and by username.
+ *
+ * Each bucket is a single theoretical-arrival-time stamp (GCRA) updated with a
+ * CAS, so admitting an attempt takes no locks beyond the striping inside
+ * {@link ConcurrentHashMap}. A bucket whose stamp has fallen behind the clock
+ * is full again and indistinguishable from a missing one, which is what the
+ * periodic sweep removes.
+ */
+@Component
+public class LoginRateLimiter {
+
+    private static final long SWEEP_INTERVAL_MILLIS = 60_000;
+
+    private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+    private final Limit perUser;
+
+    private final Limit perClient;
+
+    private final int maxEntries;
+
+    private final AtomicLong nextSweep = new AtomicLong();
+
+    private final Counter userRejections;
+
+    private final Counter clientRejections;
+
+    public LoginRateLimiter(@Value("${security.login.per-user.per-minute:10}") int userPerMinute,
+                            @Value("${security.login.per-user.burst:5}") int userBurst,
+                            @Value("${security.login.per-client.per-minute:60}") int clientPerMinute,
+                            @Value("${security.login.per-client.burst:20}") int clientBurst,
+                            @Value("${security.login.max-entries:100000}") int maxEntries,
+                            MeterRegistry registry) {
+        this.perUser = new Limit(userPerMinute, userBurst);
+        this.perClient = new Limit(clientPerMinute, clientBurst);
+        this.maxEntries = maxEntries;
+        this.userRejections = Counter.builder("security.login.throttled").tag("key", "username").register(registry);
+        this.clientRejections = Counter.builder("security.login.throttled").tag("key", "client").register(registry);
+        registry.gauge("security.login.buckets", buckets, ConcurrentHashMap::size);
+    }
+
+    /**
+     * Takes one token from the client's bucket and then the username's.
+     *
+     * @return 0 if the attempt is admitted, otherwise the number of
+     *         milliseconds until the next attempt would be
+     */
+    public long tryAcquire(String username, String clientAddress, long now) {
+        sweepIfDue(now);
+        long wait = acquire("c:" + clientAddress, perClient, now);
+        if (wait > 0) {
+            clientRejections.increment();
+            return wait;
+        }
+        if (username == null) {
+            return 0;
+        }
+        wait = acquire("u:" + username.toLowerCase(Locale.ROOT), perUser, now);
+        if (wait > 0) {
+            userRejections.increment();
+        }
+        return wait;
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    private long acquire(String key, Limit limit, long now) {
+        AtomicLong tat = buckets.get(key);
+        if (tat == null) {
+            tat = buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+        }
+        while (true) {
+            long current = tat.get();
+            long next = Math.max(current, now) + limit.interval;
+            long wait = next - now - limit.tolerance;
+            if (wait > 0) {
+                return wait;
+            }
+            if (tat.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    // Drops idle buckets once a minute, or straight away when the table is over
+    // capacity. If that is not enough, drops arbitrary ones until a tenth of the
+    // capacity is free again; losing a bucket only ever makes the limiter more
+    // lenient for that key.
+    private void sweepIfDue(long now) {
+        long due = nextSweep.get();
+        if (now < due && buckets.size() < maxEntries) {
+            return;
+        }
+        if (!nextSweep.compareAndSet(due, now + SWEEP_INTERVAL_MILLIS)) {
+            return;
+        }
+        buckets.entrySet().removeIf(entry -> entry.getValue().get() <= now);
+        int target = maxEntries - Math.max(1, maxEntries / 10);
+        Iterator<String> it = buckets.keySet().iterator();
+        while (buckets.size() > target && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    private static final class Limit {
+
+        // Milliseconds between tokens.
+        private final long interval;
+
+        // How far ahead of the clock the bucket may run before rejecting.
+        private final long tolerance;
+
+        private Limit(int perMinute, int burst) {
+            this.interval = 60_000L / Math.max(1, perMinute);
+            this.tolerance = interval * Math.max(1, burst);
+        }
+    }
+}
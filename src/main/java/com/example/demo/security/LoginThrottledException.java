@@ -0,0 +1,21 @@
+package com.example.demo.security;
+
+import org.springframework.security.core.AuthenticationException;
+
+/**
+ * Thrown when a login attempt is refused by {@link LoginRateLimiter} before
+ * any credentials are checked.
+ */
+public class LoginThrottledException extends AuthenticationException {
+
+    private final long retryAfterMillis;
+
+    public LoginThrottledException(long retryAfterMillis) {
+        super("Too many login attempts");
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+}
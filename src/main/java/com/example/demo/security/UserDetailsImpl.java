@@ -5,7 +5,6 @@ import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
-import org.springframework.security.core.userdetails.User;
 import com.example.demo.model.persistence.repositories.UserRepository;
 
 import static java.util.Collections.emptyList;
@@ -22,6 +21,8 @@ public class UserDetailsImpl implements UserDetailsService {
         if (applicationUser == null) {
             throw new UsernameNotFoundException(username);
         }
-        return new User(applicationUser.getUsername(), applicationUser.getPassword(), emptyList());
+        Long cartId = applicationUser.getCart() == null ? null : applicationUser.getCart().getId();
+        return new AppUserDetails(applicationUser.getUsername(), applicationUser.getPassword(), emptyList(),
+                applicationUser.getId(), cartId);
     }
 }
\ No newline at end of file
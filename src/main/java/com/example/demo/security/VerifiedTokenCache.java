@@ -0,0 +1,84 @@
+package com.example.demo.security;
+
+import java.util.Date;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounded cache of tokens whose signature has already been verified, mapped to
+ * the authentication built from them. Entries expire with the token, or after
+ * {@code security.token-cache.ttl-ms}, whichever comes first.
+ */
+@Component
+public class VerifiedTokenCache {
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private final int maxEntries;
+
+    private final long ttlMillis;
+
+    public VerifiedTokenCache(@Value("${security.token-cache.max-entries:10000}") int maxEntries,
+                              @Value("${security.token-cache.ttl-ms:300000}") long ttlMillis) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+    }
+
+    public UsernamePasswordAuthenticationToken get(String token, long now) {
+        Entry entry = entries.get(token);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt <= now) {
+            entries.remove(token, entry);
+            return null;
+        }
+        return entry.authentication;
+    }
+
+    public void put(String token, UsernamePasswordAuthenticationToken authentication, Date tokenExpiry, long now) {
+        long expiresAt = now + ttlMillis;
+        if (tokenExpiry != null) {
+            expiresAt = Math.min(expiresAt, tokenExpiry.getTime());
+        }
+        if (expiresAt <= now) {
+            return;
+        }
+        if (entries.size() >= maxEntries) {
+            evict(now);
+        }
+        entries.put(token, new Entry(authentication, expiresAt));
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    // Drops expired entries first; if that is not enough, drops arbitrary ones
+    // until a tenth of the capacity is free again.
+    private void evict(long now) {
+        entries.values().removeIf(entry -> entry.expiresAt <= now);
+        int target = maxEntries - Math.max(1, maxEntries / 10);
+        Iterator<String> it = entries.keySet().iterator();
+        while (entries.size() > target && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    private static final class Entry {
+
+        private final UsernamePasswordAuthenticationToken authentication;
+
+        private final long expiresAt;
+
+        private Entry(UsernamePasswordAuthenticationToken authentication, long expiresAt) {
+            this.authentication = authentication;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
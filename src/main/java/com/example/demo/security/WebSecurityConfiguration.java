@@ -1,5 +1,7 @@
 package com.example.demo.security;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
 import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
@@ -7,7 +9,7 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.context.annotation.Bean;
 
 import static com.example.demo.security.SecurityConstants.SIGN_UP_URL;
@@ -15,21 +17,31 @@ import static com.example.demo.security.SecurityConstants.SIGN_UP_URL;
 @EnableWebSecurity
 public class WebSecurityConfiguration extends WebSecurityConfigurerAdapter {
     private UserDetailsImpl userDetailsService;
-    private BCryptPasswordEncoder bCryptPasswordEncoder;
+    private PasswordEncoder bCryptPasswordEncoder;
+    private VerifiedTokenCache tokenCache;
+    private LoginRateLimiter loginRateLimiter;
+    private MeterRegistry meterRegistry;
 
-    public WebSecurityConfiguration(UserDetailsImpl userDetailsService, BCryptPasswordEncoder bCryptPasswordEncoder) {
+    public WebSecurityConfiguration(UserDetailsImpl userDetailsService, PasswordEncoder bCryptPasswordEncoder,
+                                    VerifiedTokenCache tokenCache, LoginRateLimiter loginRateLimiter,
+                                    MeterRegistry meterRegistry) {
         this.userDetailsService = userDetailsService;
         this.bCryptPasswordEncoder = bCryptPasswordEncoder;
+        this.tokenCache = tokenCache;
+        this.loginRateLimiter = loginRateLimiter;
+        this.meterRegistry = meterRegistry;
     }
 
     @Override
     protected void configure(HttpSecurity http) throws Exception {
         http.cors().and().csrf().disable().authorizeRequests()
                 .antMatchers(HttpMethod.POST, SIGN_UP_URL).permitAll()
+                // Actuator is only served on the loopback management port.
+                .requestMatchers(EndpointRequest.toAnyEndpoint()).permitAll()
                 .anyRequest().authenticated()
                 .and()
-                .addFilter(new JWTAuthenticationFilter(authenticationManager()))
-                .addFilter(new JWTAuthenticationVerificationFilter(authenticationManager()))
+                .addFilter(new JWTAuthenticationFilter(authenticationManager(), loginRateLimiter))
+                .addFilter(new JWTAuthenticationVerificationFilter(authenticationManager(), tokenCache, meterRegistry))
                 .sessionManagement().sessionCreationPolicy(SessionCreationPolicy.STATELESS);
     }
 
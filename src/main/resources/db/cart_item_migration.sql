@@ -0,0 +1,15 @@
+-- One-off migration for databases created before carts were stored as
+-- quantity-based lines. Collapses the per-unit cart_items join table into one
+-- cart_item row per (cart, item). Run once after the application has created
+-- the cart_item table and cart_item_seq, and before sequence_id_migration.sql,
+-- which restarts the sequence above the ids handed out here.
+insert into cart_item (id, cart_id, item_id, quantity, unit_price)
+select next value for cart_item_seq, l.cart_id, l.item_id, l.quantity, l.unit_price
+from (
+    select ci.cart_id, ci.items_id as item_id, count(*) as quantity, i.price as unit_price
+    from cart_items ci
+    join item i on i.id = ci.items_id
+    group by ci.cart_id, ci.items_id, i.price
+) l;
+
+drop table cart_items;
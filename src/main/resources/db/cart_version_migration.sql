@@ -0,0 +1,4 @@
+-- One-off migration for databases created before carts were versioned. Adds
+-- the optimistic-lock column with every existing cart at version 0. Run once
+-- before starting the application against the existing database.
+alter table cart add column version bigint default 0 not null;
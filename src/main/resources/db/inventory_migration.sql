@@ -0,0 +1,23 @@
+-- One-off migration for databases created before stock was tracked. Items get
+-- an inventory row only once they are stocked; until then they are not
+-- stock-tracked and orders for them always go through.
+create table inventory (
+    item_id bigint not null primary key,
+    on_hand bigint not null,
+    leased bigint not null
+);
+
+-- Which instance holds how many of the leased units. Rows an instance stops
+-- renewing are handed back after inventory.lease-ttl-ms, so units leased by
+-- an instance that crashed are not stuck.
+create table inventory_lease (
+    instance_id varchar(64) not null,
+    item_id bigint not null,
+    units bigint not null,
+    expires_at bigint not null,
+    primary key (instance_id, item_id)
+);
+
+-- Databases that already have leases from before inventory_lease existed:
+-- with every instance stopped, release them once.
+-- update inventory set leased = 0;
@@ -0,0 +1,6 @@
+-- One-off migration for databases created before items carried a SKU. Adds
+-- the column catalog imports match on; existing items keep a null SKU until
+-- a feed supplies one. Run once before starting the application against the
+-- existing database.
+alter table item add column sku varchar(255);
+alter table item add constraint uk_item_sku unique (sku);
@@ -0,0 +1,12 @@
+-- One-off migration for databases created while orders referenced items
+-- through the user_order_items join table. Collapses the per-unit join rows
+-- into one order_line per (order, item). The original price paid was never
+-- stored, so lines take the item's current price and name. Run once after
+-- the application has created the order_line table.
+insert into order_line (order_id, item_id, name, unit_price, quantity)
+select oi.user_order_id, oi.items_id, i.name, i.price, count(*)
+from user_order_items oi
+join item i on i.id = oi.items_id
+group by oi.user_order_id, oi.items_id, i.name, i.price;
+
+drop table user_order_items;
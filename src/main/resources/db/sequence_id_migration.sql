@@ -0,0 +1,16 @@
+-- One-off migration for databases whose ids were generated with IDENTITY
+-- columns. Run after the application has created the *_seq sequences, and
+-- after cart_item_migration.sql if the carts still need collapsing into lines.
+--
+-- Hibernate's pooled optimizer reads each sequence value as the top of a
+-- block of 50 ids (the allocationSize), so every sequence must restart at
+-- max(id) + 50 for its first block to begin just above the existing rows.
+-- Existing ids are left untouched. Tables created before the sequences keep
+-- identity defaults on their id columns, which Hibernate no longer uses;
+-- tables created since have no default, so inserts outside the application
+-- must take ids from the sequences too.
+alter sequence user_seq restart with (select coalesce(max(id), 0) + 50 from user);
+alter sequence cart_seq restart with (select coalesce(max(id), 0) + 50 from cart);
+alter sequence cart_item_seq restart with (select coalesce(max(id), 0) + 50 from cart_item);
+alter sequence item_seq restart with (select coalesce(max(id), 0) + 50 from item);
+alter sequence user_order_seq restart with (select coalesce(max(id), 0) + 50 from user_order);
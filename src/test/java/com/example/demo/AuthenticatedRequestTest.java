@@ -0,0 +1,102 @@
+package com.example.demo;
+
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.Date;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.WebApplicationContext;
+
+import com.auth0.jwt.JWT;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.repositories.CartRepository;
+import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.security.JWTTokens;
+import com.example.demo.security.SecurityConstants;
+
+/**
+ * Sends requests with signed tokens through the security filters and MVC, so
+ * the principal a controller receives is the one the token describes. MockMvc
+ * is built by hand to keep the shared test context.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class AuthenticatedRequestTest {
+
+    @Autowired
+    private WebApplicationContext context;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private MockMvc mvc;
+
+    private User user;
+
+    @Before
+    public void setUp()
+    {
+        mvc = MockMvcBuilders.webAppContextSetup(context).apply(springSecurity()).build();
+        user = new TransactionTemplate(transactionManager).execute(status ->
+                TestUtils.createUserWithCart(userRepository, cartRepository, "token-"));
+    }
+
+    @Test
+    public void token_principal_reaches_the_controller() throws Exception
+    {
+        String token = JWTTokens.create(user.getUsername(), user.getId(), user.getCart().getId());
+
+        mvc.perform(addToCart(token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.lines[0].quantity").value(2));
+    }
+
+    @Test
+    public void request_without_token_is_refused() throws Exception
+    {
+        mvc.perform(addToCart(null)).andExpect(status().isForbidden());
+    }
+
+    @Test
+    public void expired_token_is_refused() throws Exception
+    {
+        String token = JWT.create()
+                .withSubject(user.getUsername())
+                .withExpiresAt(new Date(System.currentTimeMillis() - 60_000))
+                .sign(JWTTokens.ALGORITHM);
+
+        mvc.perform(addToCart(token)).andExpect(status().isForbidden());
+    }
+
+    private MockHttpServletRequestBuilder addToCart(String token)
+    {
+        MockHttpServletRequestBuilder request = post("/api/cart/addToCart")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"username\":\"" + user.getUsername() + "\",\"itemId\":1,\"quantity\":2}");
+        if (token != null) {
+            request.header(SecurityConstants.HEADER_STRING, SecurityConstants.TOKEN_PREFIX + token);
+        }
+        return request;
+    }
+
+}
@@ -0,0 +1,113 @@
+package com.example.demo;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import com.example.demo.security.BoundedPasswordEncoder;
+import com.example.demo.security.PasswordHashingRejectedException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class BoundedPasswordEncoderTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private final ExecutorService callers = Executors.newFixedThreadPool(2);
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @After
+    public void tearDown()
+    {
+        release.countDown();
+        callers.shutdownNow();
+    }
+
+    @Test
+    public void delegates_to_wrapped_encoder()
+    {
+        BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(prefixingEncoder(), 1, 1, 1000, registry);
+
+        assertEquals("hashed:secret", encoder.encode("secret"));
+        assertTrue(encoder.matches("secret", "hashed:secret"));
+        assertFalse(encoder.matches("secret", "secret"));
+        assertEquals(1, registry.get("security.password.hash").tag("operation", "encode").timer().count());
+    }
+
+    @Test
+    public void rejects_when_pool_and_queue_are_full() throws Exception
+    {
+        BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(blockingEncoder(), 1, 1, 5000, registry);
+        Future<String> running = callers.submit(() -> encoder.encode("a"));
+        Future<String> queued = callers.submit(() -> encoder.encode("b"));
+        while (registry.get("security.password.queue").gauge().value() < 1) {
+            Thread.sleep(5);
+        }
+
+        try {
+            encoder.encode("c");
+            fail("expected rejection");
+        } catch (PasswordHashingRejectedException e) {
+            assertEquals(1.0, registry.get("security.password.rejected").counter().count(), 0.0);
+        }
+
+        release.countDown();
+        assertEquals("a", running.get(1, TimeUnit.SECONDS));
+        assertEquals("b", queued.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test(expected = PasswordHashingRejectedException.class)
+    public void rejects_when_hash_times_out()
+    {
+        new BoundedPasswordEncoder(blockingEncoder(), 1, 1, 50, registry).encode("a");
+    }
+
+    private static PasswordEncoder prefixingEncoder()
+    {
+        return new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword)
+            {
+                return "hashed:" + rawPassword;
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword)
+            {
+                return encode(rawPassword).equals(encodedPassword);
+            }
+        };
+    }
+
+    private PasswordEncoder blockingEncoder()
+    {
+        return new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword)
+            {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return rawPassword.toString();
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword)
+            {
+                return encode(rawPassword).equals(encodedPassword);
+            }
+        };
+    }
+
+}
@@ -0,0 +1,120 @@
+package com.example.demo;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.controllers.CartController;
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.CartItem;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.repositories.CartRepository;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.model.requests.ModifyCartRequest;
+import com.example.demo.model.responses.CartView;
+
+/**
+ * Hammers one cart from many threads and checks that no update is lost.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class CartConcurrencyTest {
+
+    private static final int THREADS = 8;
+
+    private static final int ADDS_PER_THREAD = 25;
+
+    @Autowired
+    private CartController cartController;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    public void concurrent_adds_to_one_cart_are_not_lost() throws Exception
+    {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        User user = tx.execute(status -> TestUtils.createUserWithCart(userRepository, cartRepository, "concurrent-"));
+        Long cartId = user.getCart().getId();
+        Item item = new Item();
+        item.setName("Contended Widget");
+        item.setDescription("Added from many threads");
+        item.setPrice(new BigDecimal("2.99"));
+        item = itemRepository.save(item);
+
+        ModifyCartRequest request = new ModifyCartRequest();
+        request.setUsername(user.getUsername());
+        request.setItemId(item.getId());
+        request.setQuantity(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>();
+        try {
+            for (int t = 0; t < THREADS; t++) {
+                Callable<Integer> worker = () -> {
+                    start.await();
+                    int ok = 0;
+                    for (int i = 0; i < ADDS_PER_THREAD; i++) {
+                        ResponseEntity<CartView> response = cartController.addTocart(request, null);
+                        if (response.getStatusCodeValue() == 200) {
+                            ok++;
+                        }
+                    }
+                    return ok;
+                };
+                results.add(executor.submit(worker));
+            }
+            start.countDown();
+            int succeeded = 0;
+            for (Future<Integer> result : results) {
+                succeeded += result.get(60, TimeUnit.SECONDS);
+            }
+            assertEquals(THREADS * ADDS_PER_THREAD, succeeded);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        int expected = THREADS * ADDS_PER_THREAD;
+        Long itemId = item.getId();
+        tx.execute(status -> {
+            Cart cart = cartRepository.findById(cartId).get();
+            assertEquals(1, cart.getLines().size());
+            CartItem line = cart.getLines().iterator().next();
+            assertEquals(itemId, line.getItem().getId());
+            assertEquals(expected, line.getQuantity());
+            assertEquals(0, new BigDecimal("2.99").multiply(BigDecimal.valueOf(expected))
+                    .compareTo(cart.getTotal()));
+            return null;
+        });
+    }
+
+}
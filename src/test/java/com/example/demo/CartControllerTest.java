@@ -1,18 +1,27 @@
 package com.example.demo;
 
 import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.math.BigDecimal;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Optional;
 
+import com.example.demo.cart.CartUpdates;
+import com.example.demo.catalog.CatalogVersion;
+import com.example.demo.catalog.ItemCatalog;
 import com.example.demo.controllers.CartController;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.Before;
 import org.junit.Test;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import com.example.demo.model.persistence.Cart;
 import com.example.demo.model.persistence.Item;
@@ -20,7 +29,12 @@ import com.example.demo.model.persistence.User;
 import com.example.demo.model.persistence.repositories.CartRepository;
 import com.example.demo.model.persistence.repositories.ItemRepository;
 import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.model.requests.BatchModifyCartRequest;
+import com.example.demo.model.requests.CartOperation;
 import com.example.demo.model.requests.ModifyCartRequest;
+import com.example.demo.model.responses.CartView;
+import com.example.demo.model.responses.LineView;
+import com.example.demo.security.AuthenticatedUser;
 
 public class CartControllerTest {
 
@@ -38,7 +52,9 @@ public class CartControllerTest {
         cartController = new CartController();
         TestUtils.injectObjects(cartController, "userRepository", userRepo);
         TestUtils.injectObjects(cartController, "cartRepository", cartRepo);
-        TestUtils.injectObjects(cartController, "itemRepository", itemRepo);
+        TestUtils.injectObjects(cartController, "itemCatalog", new ItemCatalog(itemRepo, new CatalogVersion(), 100));
+        TestUtils.injectObjects(cartController, "cartUpdates",
+                new CartUpdates(mock(PlatformTransactionManager.class), 3, new SimpleMeterRegistry()));
     }
 
     @Test
@@ -68,10 +84,37 @@ public class CartControllerTest {
 
         when(itemRepo.findById(0L)).thenReturn(itemOpt);
 
-        ResponseEntity<Cart> response = cartController.addTocart(req);
+        ResponseEntity<CartView> response = cartController.addTocart(req, null);
 
         assertEquals(200, response.getStatusCodeValue());
-        assertEquals(2, response.getBody().getItems().size());
+        assertEquals(1, response.getBody().getLines().size());
+        assertEquals(2, quantity(response.getBody(), 0L));
+        assertEquals(new BigDecimal("4.00"), response.getBody().getTotal());
+    }
+
+    @Test
+    public void addToCart_uses_cart_id_from_token()
+    {
+        ModifyCartRequest req = new ModifyCartRequest();
+        req.setItemId(0);
+        req.setUsername("test");
+        req.setQuantity(1);
+
+        Cart cart = new Cart();
+        cart.setId(7L);
+
+        Item item = new Item();
+        item.setId(0L);
+        item.setPrice(BigDecimal.valueOf(2));
+
+        when(cartRepo.findById(7L)).thenReturn(Optional.of(cart));
+        when(itemRepo.findById(0L)).thenReturn(Optional.of(item));
+
+        ResponseEntity<CartView> response = cartController.addTocart(req, new AuthenticatedUser("test", 3L, 7L));
+
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(1, quantity(response.getBody(), 0L));
+        verify(userRepo, never()).findByUsername(anyString());
     }
 
     @Test
@@ -93,7 +136,7 @@ public class CartControllerTest {
 
         when(userRepo.findByUsername("test")).thenReturn(user);
 
-        ResponseEntity<Cart> response = cartController.addTocart(req);
+        ResponseEntity<CartView> response = cartController.addTocart(req, null);
 
         assertEquals(404, response.getStatusCodeValue());
     }
@@ -118,7 +161,7 @@ public class CartControllerTest {
 
         when(itemRepo.findById(0L)).thenReturn(itemOpt);
 
-        ResponseEntity<Cart> response = cartController.addTocart(req);
+        ResponseEntity<CartView> response = cartController.addTocart(req, null);
 
         assertEquals(404, response.getStatusCodeValue());
     }
@@ -139,11 +182,6 @@ public class CartControllerTest {
         Cart cart = new Cart();
         cart.setId(0L);
         cart.setUser(user);
-        List<Item> items = cart.getItems();
-        if(items == null)
-        {
-            items = new ArrayList<Item>();
-        }
 
         user.setCart(cart);
 
@@ -153,9 +191,7 @@ public class CartControllerTest {
         item.setDescription("A widget that is round");
         item.setPrice(BigDecimal.valueOf(2.99));
 
-        items.add(item);
-        items.add(item);
-        cart.setItems(items);
+        cart.addItem(item, 2);
 
         Optional<Item> itemOpt = Optional.of(item);
 
@@ -163,10 +199,11 @@ public class CartControllerTest {
 
         when(itemRepo.findById(0L)).thenReturn(itemOpt);
 
-        ResponseEntity<Cart> response = cartController.removeFromcart(req);
+        ResponseEntity<CartView> response = cartController.removeFromcart(req, null);
 
         assertEquals(200, response.getStatusCodeValue());
-        assertEquals(0, response.getBody().getItems().size());
+        assertTrue(response.getBody().getLines().isEmpty());
+        assertEquals(0, BigDecimal.ZERO.compareTo(response.getBody().getTotal()));
     }
 
     @Test
@@ -185,26 +222,18 @@ public class CartControllerTest {
         Cart cart = new Cart();
         cart.setId(0L);
         cart.setUser(user);
-        List<Item> items = cart.getItems();
-        if(items == null)
-        {
-            items = new ArrayList<Item>();
-        }
 
         user.setCart(cart);
 
         Item item = null;
 
-        items.add(item);
-        cart.setItems(items);
-
         Optional<Item> itemOpt = Optional.ofNullable(item);
 
         when(userRepo.findByUsername("test")).thenReturn(user);
 
         when(itemRepo.findById(0L)).thenReturn(itemOpt);
 
-        ResponseEntity<Cart> response = cartController.removeFromcart(req);
+        ResponseEntity<CartView> response = cartController.removeFromcart(req, null);
 
         assertEquals(404, response.getStatusCodeValue());
     }
@@ -229,9 +258,98 @@ public class CartControllerTest {
 
         when(itemRepo.findById(0L)).thenReturn(itemOpt);
 
-        ResponseEntity<Cart> response = cartController.removeFromcart(req);
+        ResponseEntity<CartView> response = cartController.removeFromcart(req, null);
 
         assertEquals(404, response.getStatusCodeValue());
     }
 
-}
\ No newline at end of file
+    @Test
+    public void batch_happy_path()
+    {
+        User user = new User();
+        user.setId(0);
+        user.setUsername("test");
+
+        Cart cart = new Cart();
+        user.setCart(cart);
+
+        Item round = new Item();
+        round.setId(1L);
+        round.setPrice(BigDecimal.valueOf(2.99));
+
+        Item square = new Item();
+        square.setId(2L);
+        square.setPrice(BigDecimal.valueOf(1.99));
+
+        cart.addItem(square, 4);
+
+        BatchModifyCartRequest req = new BatchModifyCartRequest();
+        req.setUsername("test");
+        req.setOperations(Arrays.asList(
+                operation(CartOperation.Type.ADD, 1L, 5),
+                operation(CartOperation.Type.REMOVE, 1L, 2),
+                operation(CartOperation.Type.SET, 2L, 1)));
+
+        when(userRepo.findByUsername("test")).thenReturn(user);
+        when(itemRepo.findAllById(anyIterable())).thenReturn(Arrays.asList(round, square));
+
+        ResponseEntity<CartView> response = cartController.modifyCart(req, null);
+
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(3, quantity(response.getBody(), 1L));
+        assertEquals(1, quantity(response.getBody(), 2L));
+        assertEquals(0, new BigDecimal("10.96").compareTo(response.getBody().getTotal()));
+    }
+
+    @Test
+    public void batch_item_not_found()
+    {
+        User user = new User();
+        user.setUsername("test");
+        user.setCart(new Cart());
+
+        BatchModifyCartRequest req = new BatchModifyCartRequest();
+        req.setUsername("test");
+        req.setOperations(Collections.singletonList(operation(CartOperation.Type.ADD, 1L, 1)));
+
+        when(userRepo.findByUsername("test")).thenReturn(user);
+        when(itemRepo.findAllById(anyIterable())).thenReturn(Collections.emptyList());
+
+        ResponseEntity<CartView> response = cartController.modifyCart(req, null);
+
+        assertEquals(404, response.getStatusCodeValue());
+        assertTrue(user.getCart().getLines().isEmpty());
+    }
+
+    @Test
+    public void batch_invalid_operation()
+    {
+        BatchModifyCartRequest req = new BatchModifyCartRequest();
+        req.setUsername("test");
+        req.setOperations(Collections.singletonList(operation(CartOperation.Type.ADD, 1L, -1)));
+
+        ResponseEntity<CartView> response = cartController.modifyCart(req, null);
+
+        assertEquals(400, response.getStatusCodeValue());
+    }
+
+    private static int quantity(CartView cart, long itemId)
+    {
+        for (LineView line : cart.getLines()) {
+            if (line.getItemId() == itemId) {
+                return line.getQuantity();
+            }
+        }
+        return 0;
+    }
+
+    private static CartOperation operation(CartOperation.Type type, long itemId, int quantity)
+    {
+        CartOperation op = new CartOperation();
+        op.setType(type);
+        op.setItemId(itemId);
+        op.setQuantity(quantity);
+        return op;
+    }
+
+}
@@ -0,0 +1,68 @@
+package com.example.demo;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.example.demo.cart.CartConflictException;
+import com.example.demo.cart.CartUpdates;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class CartUpdatesTest {
+
+    private final CartUpdates cartUpdates =
+            new CartUpdates(mock(PlatformTransactionManager.class), 3, new SimpleMeterRegistry());
+
+    private final AtomicInteger attempts = new AtomicInteger();
+
+    @Test
+    public void duplicate_line_is_retried()
+    {
+        try {
+            cartUpdates.execute("test", () -> violation(new SQLException("Unique index violation", "23505")));
+            fail("Expected CartConflictException");
+        } catch (CartConflictException e) {
+            assertEquals(3, attempts.get());
+        }
+    }
+
+    @Test
+    public void other_integrity_violations_are_not_retried()
+    {
+        try {
+            cartUpdates.execute("test", () -> violation(new SQLException("NULL not allowed", "23502")));
+            fail("Expected DataIntegrityViolationException");
+        } catch (DataIntegrityViolationException e) {
+            assertEquals(1, attempts.get());
+        }
+    }
+
+    @Test
+    public void lock_timeout_is_retried()
+    {
+        try {
+            cartUpdates.execute("test", () -> {
+                attempts.incrementAndGet();
+                throw new CannotAcquireLockException("Timeout trying to lock table");
+            });
+            fail("Expected CartConflictException");
+        } catch (CartConflictException e) {
+            assertEquals(3, attempts.get());
+        }
+    }
+
+    private Object violation(SQLException cause)
+    {
+        attempts.incrementAndGet();
+        throw new DataIntegrityViolationException("could not execute statement", cause);
+    }
+
+}
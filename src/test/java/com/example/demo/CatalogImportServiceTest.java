@@ -0,0 +1,162 @@
+package com.example.demo;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.PayloadApplicationEvent;
+import org.springframework.context.event.ApplicationEventMulticaster;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.example.demo.catalog.CatalogChangedEvent;
+import com.example.demo.catalog.CatalogImportService;
+import com.example.demo.controllers.CatalogImportEndpoint;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.model.responses.ImportReport;
+
+/**
+ * Imports small feeds with a tiny chunk size, so several chunks are written,
+ * and checks rows, errors and that the catalog hears about it exactly once.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class CatalogImportServiceTest {
+
+    @Autowired
+    private CatalogImportService importService;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private ApplicationEventMulticaster eventMulticaster;
+
+    private final List<CatalogChangedEvent> received = Collections.synchronizedList(new ArrayList<>());
+
+    // Registered on the shared context for this test only, rather than as a
+    // bean, which would need a context of its own.
+    private final ApplicationListener<ApplicationEvent> listener = event -> {
+        if (event instanceof PayloadApplicationEvent
+                && ((PayloadApplicationEvent<?>) event).getPayload() instanceof CatalogChangedEvent) {
+            received.add((CatalogChangedEvent) ((PayloadApplicationEvent<?>) event).getPayload());
+        }
+    };
+
+    @Before
+    public void setUp()
+    {
+        eventMulticaster.addApplicationListener(listener);
+    }
+
+    @After
+    public void tearDown()
+    {
+        eventMulticaster.removeApplicationListener(listener);
+    }
+
+    @Test
+    public void csv_rows_are_inserted_and_bad_rows_reported() throws IOException
+    {
+        String csv = "sku,name,price,description\n"
+                + "CSV-1,Round Widget,2.99,A widget that is round\n"
+                + "CSV-2,\"Widget, square\",1.99,\"Two lines\nof description\"\n"
+                + "CSV-3,Broken Widget,two dollars,Bad price\n"
+                + "CSV-4,,1.00,No name\n"
+                + "\n"
+                + "CSV-5,\"Quoted \"\"Widget\"\"\",0.50,\n";
+
+        ImportReport report = importService.importCsv(new StringReader(csv));
+
+        assertEquals(5, report.getRows());
+        assertEquals(3, report.getInserted());
+        assertEquals(2, report.getRejected());
+        assertEquals(5, report.getErrors().get(0).getLine());
+        assertEquals(6, report.getErrors().get(1).getLine());
+        assertEquals("Missing name", report.getErrors().get(1).getMessage());
+
+        Item square = item("CSV-2");
+        assertEquals("Widget, square", square.getName());
+        assertEquals("Two lines\nof description", square.getDescription());
+        assertEquals("Quoted \"Widget\"", item("CSV-5").getName());
+        assertEquals("", item("CSV-5").getDescription());
+        assertEquals(1, received.size());
+        assertTrue(received.get(0).isFullInvalidation());
+    }
+
+    @Test
+    public void ndjson_rows_update_by_sku() throws IOException
+    {
+        importService.importNdjson(new StringReader(
+                "{\"sku\":\"JSON-1\",\"name\":\"Gadget\",\"price\":3.50,\"description\":\"Useful\"}\n"
+                + "{\"sku\":\"JSON-2\",\"name\":\"Gizmo\",\"price\":\"4.25\",\"description\":\"Shiny\"}\n"));
+        received.clear();
+
+        ImportReport report = importService.importNdjson(new StringReader(
+                "{\"sku\":\"JSON-1\",\"name\":\"Gadget\",\"price\":3.75,\"description\":\"Useful\"}\n"
+                + "{\"sku\":\"JSON-2\",\"name\":\"Gizmo\",\"price\":4.25,\"description\":\"Shiny\"}\n"
+                + "{\"sku\":\"JSON-3\",\"name\":\"Doohickey\",\"price\":1.999}\n"
+                + "not json\n"));
+
+        assertEquals(4, report.getRows());
+        assertEquals(1, report.getUpdated());
+        assertEquals(1, report.getUnchanged());
+        assertEquals(0, report.getInserted());
+        assertEquals(2, report.getRejected());
+        assertEquals(0, new BigDecimal("3.75").compareTo(item("JSON-1").getPrice()));
+        assertEquals(1, received.size());
+    }
+
+    @Test
+    public void unterminated_quote_stops_the_import() throws IOException
+    {
+        ImportReport report = importService.importCsv(new StringReader(
+                "sku,name,price\nQ-1,Fine,1.00\nQ-2,\"Never closed,1.00\nQ-3,Lost,1.00\n"));
+
+        assertEquals(1, report.getInserted());
+        assertEquals(1, report.getRejected());
+        assertTrue(report.getErrors().get(0).getMessage().startsWith("Unterminated"));
+    }
+
+    @Test
+    public void endpoint_imports_only_when_enabled() throws IOException
+    {
+        CatalogImportEndpoint endpoint = new CatalogImportEndpoint();
+        TestUtils.injectObjects(endpoint, "catalogImportService", importService);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setContent("sku,name,price\nEP-1,Endpoint Widget,1.00\n".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(404, endpoint.importCsv(request).getStatusCodeValue());
+        assertTrue(itemRepository.findBySkuIn(Collections.singletonList("EP-1")).isEmpty());
+
+        TestUtils.injectObjects(endpoint, "importEnabled", true);
+        ResponseEntity<ImportReport> response = endpoint.importCsv(request);
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(1, response.getBody().getInserted());
+        assertEquals("Endpoint Widget", item("EP-1").getName());
+    }
+
+    private Item item(String sku)
+    {
+        List<Item> items = itemRepository.findBySkuIn(Collections.singletonList(sku));
+        assertEquals(1, items.size());
+        return items.get(0);
+    }
+
+}
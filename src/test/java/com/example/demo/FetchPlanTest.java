@@ -0,0 +1,164 @@
+package com.example.demo;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.function.Supplier;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.metrics.QueryCounter;
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.persistence.repositories.CartRepository;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.model.persistence.repositories.OrderRepository;
+import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.model.responses.CartView;
+import com.example.demo.model.responses.OrderView;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Reads and serializes order history and carts the way the controllers do,
+ * and checks the number of SQL statements does not grow with the data.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class FetchPlanTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private TransactionTemplate tx;
+
+    @Before
+    public void setUp()
+    {
+        tx = new TransactionTemplate(transactionManager);
+    }
+
+    @Test
+    public void order_history_is_one_statement_for_any_number_of_orders()
+    {
+        User small = createUser(3, 1);
+        User large = createUser(3, 25);
+
+        assertEquals(1, countStatements(() -> serialize(history(small), 1)));
+        assertEquals(1, countStatements(() -> serialize(history(large), 25)));
+    }
+
+    @Test
+    public void cart_read_is_one_statement_for_any_number_of_lines()
+    {
+        User small = createUser(1, 0);
+        User large = createUser(25, 0);
+
+        assertEquals(1, countStatements(() -> serialize(cartRepository.findById(small.getCart().getId()).get())));
+        assertEquals(1, countStatements(() -> serialize(cartRepository.findById(large.getCart().getId()).get())));
+    }
+
+    @Test
+    public void cart_read_by_username_does_not_grow_with_lines()
+    {
+        User small = createUser(1, 0);
+        User large = createUser(25, 0);
+
+        // Without a token the controllers find the cart through its user and
+        // respond with its view.
+        int smallCart = countStatements(() -> serialize(cartView(small)));
+        int largeCart = countStatements(() -> serialize(cartView(large)));
+        assertEquals(smallCart, largeCart);
+    }
+
+    private CartView cartView(User user)
+    {
+        return CartView.of(userRepository.findByUsername(user.getUsername()).getCart());
+    }
+
+    private List<OrderView> history(User user)
+    {
+        return OrderView.fromRows(orderRepository.findHistoryByUserId(user.getId()));
+    }
+
+    private User createUser(int lines, int orders)
+    {
+        return tx.execute(status -> {
+            User user = TestUtils.createUserWithCart(userRepository, cartRepository, "fetch-plan-");
+            Cart cart = user.getCart();
+            for (int i = 0; i < lines; i++) {
+                Item item = new Item();
+                item.setName("Fetch Plan Item " + i);
+                item.setDescription("Fetch plan item");
+                item.setPrice(BigDecimal.ONE);
+                cart.addItem(itemRepository.save(item), 2);
+            }
+            for (int i = 0; i < orders; i++) {
+                orderRepository.save(UserOrder.createFromCart(cart));
+            }
+            return user;
+        });
+    }
+
+    // Runs the read in a fresh persistence context, as a request would.
+    private int countStatements(Supplier<String> read)
+    {
+        return tx.execute(status -> {
+            entityManager.clear();
+            QueryCounter.start();
+            try {
+                assertFalse(read.get().isEmpty());
+                return QueryCounter.current().getStatements();
+            } finally {
+                QueryCounter.stop();
+            }
+        });
+    }
+
+    private String serialize(List<OrderView> orders, int expected)
+    {
+        assertEquals(expected, orders.size());
+        return serialize(orders);
+    }
+
+    private String serialize(Object value)
+    {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
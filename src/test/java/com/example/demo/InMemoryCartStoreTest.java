@@ -0,0 +1,145 @@
+package com.example.demo;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.cart.InMemoryCartStore;
+import com.example.demo.controllers.CartController;
+import com.example.demo.controllers.OrderController;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.repositories.CartRepository;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.model.requests.ModifyCartRequest;
+import com.example.demo.model.responses.CartView;
+import com.example.demo.model.responses.OrderView;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Cart changes with {@code cart.store.mode=memory}: served from memory, written
+ * back on flush and at checkout, and read back by a fresh store. The writer
+ * thread is slowed down so the test decides when flushes happen. Memory mode
+ * needs a context of its own, and so a database of its own, as data.sql runs
+ * once per context.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "cart.store.mode=memory",
+        "cart.store.flush-interval-ms=3600000",
+        "spring.datasource.url=jdbc:h2:mem:cart-store;DB_CLOSE_DELAY=-1" })
+public class InMemoryCartStoreTest {
+
+    @Autowired
+    private CartController cartController;
+
+    @Autowired
+    private OrderController orderController;
+
+    @Autowired
+    private InMemoryCartStore cartStore;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate tx;
+
+    private String username;
+
+    private Long cartId;
+
+    private Item item;
+
+    @Before
+    public void setUp()
+    {
+        tx = new TransactionTemplate(transactionManager);
+        User user = tx.execute(status -> TestUtils.createUserWithCart(userRepository, cartRepository, "memory-"));
+        username = user.getUsername();
+        cartId = user.getCart().getId();
+        item = new Item();
+        item.setName("Stored Widget");
+        item.setDescription("Kept in memory");
+        item.setPrice(new BigDecimal("2.99"));
+        item = itemRepository.save(item);
+    }
+
+    @Test
+    public void changes_are_written_back_on_flush_and_reloaded()
+    {
+        for (int i = 0; i < 3; i++) {
+            ResponseEntity<CartView> response = cartController.addTocart(request(1), null);
+            assertEquals(200, response.getStatusCodeValue());
+        }
+        assertEquals(0, persistedQuantity());
+
+        cartStore.flushAll();
+
+        assertEquals(3, persistedQuantity());
+        assertEquals(0, cartStore.dirtyCount());
+
+        InMemoryCartStore restarted = new InMemoryCartStore(cartRepository, itemRepository, transactionManager,
+                new SimpleMeterRegistry(), 4, 10, 3600000, 3600000);
+        CartView reloaded = restarted.update(cartId, cart -> { });
+        assertEquals(1, reloaded.getLines().size());
+        assertEquals(3, reloaded.getLines().get(0).getQuantity());
+        assertEquals(new BigDecimal("8.97"), reloaded.getTotal());
+    }
+
+    @Test
+    public void checkout_sees_unflushed_changes()
+    {
+        cartController.addTocart(request(2), null);
+
+        // A request would have its persistence context open for the whole call.
+        ResponseEntity<?> response = tx.execute(status -> orderController.submit(username, null));
+
+        assertEquals(200, response.getStatusCodeValue());
+        OrderView order = (OrderView) response.getBody();
+        assertEquals(2, order.getLines().get(0).getQuantity());
+        assertEquals(new BigDecimal("5.98"), order.getTotal());
+        assertEquals(2, persistedQuantity());
+    }
+
+    @Test
+    public void unknown_cart_is_not_found()
+    {
+        assertNull(cartStore.update(-1L, cart -> cart.addItem(item, 1)));
+    }
+
+    private ModifyCartRequest request(int quantity)
+    {
+        ModifyCartRequest request = new ModifyCartRequest();
+        request.setUsername(username);
+        request.setItemId(item.getId());
+        request.setQuantity(quantity);
+        return request;
+    }
+
+    private int persistedQuantity()
+    {
+        return tx.execute(status -> cartRepository.findById(cartId).get().getQuantity(item.getId()));
+    }
+
+}
@@ -0,0 +1,230 @@
+package com.example.demo;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.inventory.InventoryService;
+import com.example.demo.inventory.OutOfStockException;
+import com.example.demo.inventory.Reservation;
+import com.example.demo.model.persistence.Inventory;
+import com.example.demo.model.persistence.InventoryLease;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.OrderLine;
+import com.example.demo.model.persistence.repositories.InventoryLeaseRepository;
+import com.example.demo.model.persistence.repositories.InventoryRepository;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+
+/**
+ * Reservations against a small stock with a lease size that does not divide
+ * it, so the last units have to come from a partial lease. The reconciler is
+ * slowed down so the test decides when sales are written back.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class InventoryServiceTest {
+
+    private static final int STOCK = 250;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private InventoryLeaseRepository leaseRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate tx;
+
+    private Item item;
+
+    @Before
+    public void setUp()
+    {
+        tx = new TransactionTemplate(transactionManager);
+        item = new Item();
+        item.setName("Scarce Widget");
+        item.setDescription("Only a few left");
+        item.setPrice(BigDecimal.ONE);
+        item = itemRepository.save(item);
+        inventoryRepository.save(new Inventory(item.getId(), STOCK));
+    }
+
+    @Test
+    public void concurrent_reservations_never_exceed_stock() throws Exception
+    {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Callable<List<Reservation>>> tasks = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            tasks.add(() -> {
+                List<Reservation> held = new ArrayList<>();
+                while (true) {
+                    try {
+                        held.add(inventoryService.reserve(lines(item, 1)));
+                    } catch (OutOfStockException e) {
+                        return held;
+                    }
+                }
+            });
+        }
+        List<Reservation> reservations = new ArrayList<>();
+        for (Future<List<Reservation>> result : pool.invokeAll(tasks)) {
+            reservations.addAll(result.get());
+        }
+        pool.shutdown();
+
+        assertEquals(STOCK, reservations.size());
+        assertEquals(STOCK, inventoryRepository.findById(item.getId()).get().getLeased());
+
+        for (int i = 0; i < reservations.size(); i++) {
+            if (i < 100) {
+                inventoryService.confirm(reservations.get(i));
+            } else {
+                inventoryService.release(reservations.get(i));
+            }
+        }
+        inventoryService.reconcile();
+
+        Inventory inventory = inventoryRepository.findById(item.getId()).get();
+        assertEquals(STOCK - 100, inventory.getOnHand());
+        assertEquals(STOCK - 100, inventory.getLeased());
+        assertEquals(STOCK - 100, inventoryService.available(item.getId()));
+    }
+
+    @Test
+    public void failed_reservation_holds_nothing()
+    {
+        Item plentiful = stocked("Plentiful Widget", 1000);
+        // Reservations go in item id order, so this one is tried only after
+        // the plentiful item has been reserved.
+        Item scarce = stocked("Last Widget", 10);
+
+        try {
+            inventoryService.reserve(Arrays.asList(
+                    new OrderLine(scarce.getId(), scarce.getName(), 100L, 11),
+                    new OrderLine(plentiful.getId(), plentiful.getName(), 100L, 5)));
+            fail("Expected OutOfStockException");
+        } catch (OutOfStockException e) {
+            assertEquals((long) scarce.getId(), e.getItemId());
+        }
+
+        assertEquals(40, inventoryService.available(plentiful.getId()));
+        // Too few to cover the order, so the last units were left in the table.
+        assertEquals(0, inventoryService.available(scarce.getId()));
+        assertEquals(0, inventoryRepository.findById(scarce.getId()).get().getLeased());
+        assertFalse(inventoryService.reserve(lines(scarce, 10)).isEmpty());
+    }
+
+    @Test
+    public void items_without_inventory_are_not_tracked()
+    {
+        Item untracked = new Item();
+        untracked.setName("Made to Order");
+        untracked.setDescription("Never runs out");
+        untracked.setPrice(BigDecimal.ONE);
+        untracked = itemRepository.save(untracked);
+
+        assertTrue(inventoryService.reserve(lines(untracked, 1000000)).isEmpty());
+        assertEquals(-1, inventoryService.available(untracked.getId()));
+    }
+
+    @Test
+    public void expired_leases_of_other_instances_are_reclaimed()
+    {
+        Item abandoned = stocked("Abandoned Widget", 100);
+        Item live = stocked("Live Widget", 100);
+        long now = System.currentTimeMillis();
+        tx.execute(status -> {
+            inventoryRepository.lease(abandoned.getId(), 60);
+            leaseRepository.save(new InventoryLease("crashed", abandoned.getId(), 60, now - 1));
+            inventoryRepository.lease(live.getId(), 60);
+            leaseRepository.save(new InventoryLease("running", live.getId(), 60, now + 60000));
+            return null;
+        });
+
+        inventoryService.maintainLeases();
+
+        assertEquals(0, inventoryRepository.findById(abandoned.getId()).get().getLeased());
+        assertFalse(leaseRepository.existsById(new InventoryLease.Key("crashed", abandoned.getId())));
+        assertEquals(60, inventoryRepository.findById(live.getId()).get().getLeased());
+        assertFalse(inventoryService.reserve(lines(abandoned, 100)).isEmpty());
+    }
+
+    @Test
+    public void lost_lease_is_not_sold_from()
+    {
+        Item contested = stocked("Contested Widget", 100);
+        Reservation sold = inventoryService.reserve(lines(contested, 1));
+        InventoryLease lease = ownLease(contested);
+        assertEquals(40, lease.getUnits());
+        // Another instance hands the lease back while this one still holds it.
+        tx.execute(status -> {
+            leaseRepository.delete(lease);
+            inventoryRepository.returnLease(contested.getId(), lease.getUnits());
+            return null;
+        });
+
+        inventoryService.maintainLeases();
+        assertEquals(0, inventoryService.available(contested.getId()));
+
+        inventoryService.confirm(sold);
+        inventoryService.reconcile();
+        Inventory inventory = inventoryRepository.findById(contested.getId()).get();
+        assertEquals(99, inventory.getOnHand());
+        assertEquals(0, inventory.getLeased());
+
+        assertFalse(inventoryService.reserve(lines(contested, 99)).isEmpty());
+        assertEquals(99, ownLease(contested).getUnits());
+    }
+
+    private InventoryLease ownLease(Item item)
+    {
+        List<InventoryLease> leases = leaseRepository.findAll().stream()
+                .filter(lease -> lease.getItemId().equals(item.getId()))
+                .collect(Collectors.toList());
+        assertEquals(1, leases.size());
+        return leases.get(0);
+    }
+
+    private Item stocked(String name, long onHand)
+    {
+        Item stocked = new Item();
+        stocked.setName(name);
+        stocked.setDescription(name);
+        stocked.setPrice(BigDecimal.ONE);
+        stocked = itemRepository.save(stocked);
+        inventoryRepository.save(new Inventory(stocked.getId(), onHand));
+        return stocked;
+    }
+
+    private static List<OrderLine> lines(Item item, int quantity)
+    {
+        return Collections.singletonList(new OrderLine(item.getId(), item.getName(), 100L, quantity));
+    }
+
+}
@@ -0,0 +1,178 @@
+package com.example.demo;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.domain.PageRequest;
+
+import com.example.demo.catalog.CatalogCacheStats;
+import com.example.demo.catalog.CatalogChangedEvent;
+import com.example.demo.catalog.CatalogVersion;
+import com.example.demo.catalog.ItemCatalog;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+
+public class ItemCatalogTest {
+
+    private ItemRepository itemRepo = mock(ItemRepository.class);
+
+    private ItemCatalog catalog;
+
+    private Item round;
+
+    private Item square;
+
+    @Before
+    public void setUp()
+    {
+        catalog = new ItemCatalog(itemRepo, new CatalogVersion(), 1);
+        round = item(1L, "Round Widget");
+        square = item(2L, "Square Widget");
+        when(itemRepo.findById(1L)).thenReturn(Optional.of(round));
+        when(itemRepo.findById(2L)).thenReturn(Optional.of(square));
+    }
+
+    @Test
+    public void findById_is_served_from_cache()
+    {
+        assertEquals(round, catalog.findById(1L).get());
+        assertEquals(round, catalog.findById(1L).get());
+
+        verify(itemRepo, times(1)).findById(1L);
+        CatalogCacheStats stats = catalog.getStats();
+        assertEquals(1, stats.getHits());
+        assertEquals(1, stats.getMisses());
+    }
+
+    @Test
+    public void findById_evicts_least_recently_used()
+    {
+        catalog.findById(1L);
+        catalog.findById(2L);
+        catalog.findById(1L);
+
+        verify(itemRepo, times(2)).findById(1L);
+        assertEquals(1, catalog.getStats().getSize());
+        assertEquals(2, catalog.getStats().getEvictions());
+    }
+
+    @Test
+    public void change_event_invalidates_item()
+    {
+        catalog.findById(1L);
+        catalog.onCatalogChanged(new CatalogChangedEvent(1L));
+        catalog.findById(1L);
+
+        verify(itemRepo, times(2)).findById(1L);
+    }
+
+    @Test
+    public void load_racing_with_a_write_is_not_cached()
+    {
+        Item renamed = item(1L, "Renamed Widget");
+        when(itemRepo.findById(1L)).thenAnswer(invocation -> {
+            catalog.onCatalogChanged(new CatalogChangedEvent(1L));
+            return Optional.of(round);
+        }).thenReturn(Optional.of(renamed));
+
+        assertEquals(round, catalog.findById(1L).get());
+        assertEquals(renamed, catalog.findById(1L).get());
+        assertEquals(renamed, catalog.findById(1L).get());
+
+        verify(itemRepo, times(2)).findById(1L);
+    }
+
+    @Test
+    public void findByName_uses_snapshot()
+    {
+        catalog = new ItemCatalog(itemRepo, new CatalogVersion(), 10);
+        when(itemRepo.count()).thenReturn(2L);
+        when(itemRepo.findAll()).thenReturn(Arrays.asList(round, square));
+
+        List<Item> items = catalog.findByName("Square Widget");
+        assertEquals(Arrays.asList(square), items);
+        assertTrue(catalog.findByName("Oval Widget").isEmpty());
+
+        verify(itemRepo, times(1)).findAll();
+
+        catalog.onCatalogChanged(CatalogChangedEvent.all());
+        catalog.findByName("Square Widget");
+
+        verify(itemRepo, times(2)).findAll();
+    }
+
+    @Test
+    public void findByName_falls_back_when_catalog_exceeds_bound()
+    {
+        when(itemRepo.count()).thenReturn(2L);
+        when(itemRepo.findByName("Round Widget")).thenReturn(Arrays.asList(round));
+
+        assertEquals(Arrays.asList(round), catalog.findByName("Round Widget"));
+        verify(itemRepo, times(0)).findAll();
+    }
+
+    @Test
+    public void findPage_seeks_past_cursor_in_snapshot()
+    {
+        catalog = new ItemCatalog(itemRepo, new CatalogVersion(), 10);
+        when(itemRepo.count()).thenReturn(2L);
+        when(itemRepo.findAll()).thenReturn(Arrays.asList(square, round));
+
+        assertEquals(Arrays.asList(round), catalog.findPage(0L, 1));
+        assertEquals(Arrays.asList(square), catalog.findPage(1L, 5));
+        assertTrue(catalog.findPage(2L, 5).isEmpty());
+    }
+
+    @Test
+    public void findPage_uses_keyset_query_when_catalog_exceeds_bound()
+    {
+        when(itemRepo.count()).thenReturn(2L);
+        when(itemRepo.findByIdGreaterThanOrderByIdAsc(1L, PageRequest.of(0, 5))).thenReturn(Arrays.asList(square));
+
+        assertEquals(Arrays.asList(square), catalog.findPage(1L, 5));
+    }
+
+    @Test
+    public void deep_pages_of_large_catalog_run_only_the_keyset_query()
+    {
+        when(itemRepo.count()).thenReturn(2L);
+        when(itemRepo.findByIdGreaterThanOrderByIdAsc(0L, PageRequest.of(0, 1))).thenReturn(Arrays.asList(round));
+        when(itemRepo.findByIdGreaterThanOrderByIdAsc(1L, PageRequest.of(0, 1))).thenReturn(Arrays.asList(square));
+
+        catalog.findPage(0L, 1);
+        catalog.findPage(1L, 1);
+        catalog.findPage(1L, 1);
+
+        verify(itemRepo, times(1)).count();
+        verify(itemRepo, times(1)).findByIdGreaterThanOrderByIdAsc(0L, PageRequest.of(0, 1));
+        verify(itemRepo, times(2)).findByIdGreaterThanOrderByIdAsc(1L, PageRequest.of(0, 1));
+        verifyNoMoreInteractions(itemRepo);
+
+        catalog.onCatalogChanged(CatalogChangedEvent.all());
+        catalog.findPage(1L, 1);
+
+        verify(itemRepo, times(2)).count();
+    }
+
+    private static Item item(Long id, String name)
+    {
+        Item item = new Item();
+        item.setId(id);
+        item.setName(name);
+        item.setPrice(BigDecimal.ONE);
+        item.setDescription(name);
+        return item;
+    }
+
+}
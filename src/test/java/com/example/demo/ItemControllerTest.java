@@ -0,0 +1,139 @@
+package com.example.demo;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.StreamUtils;
+
+import com.example.demo.catalog.CatalogChangedEvent;
+import com.example.demo.catalog.CatalogResponseCache;
+import com.example.demo.catalog.CatalogVersion;
+import com.example.demo.catalog.ItemCatalog;
+import com.example.demo.controllers.ItemController;
+import com.example.demo.model.persistence.Item;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class ItemControllerTest {
+
+    private ItemController itemController;
+
+    private ItemCatalog itemCatalog = mock(ItemCatalog.class);
+
+    private CatalogVersion catalogVersion = new CatalogVersion();
+
+    private CatalogResponseCache responseCache;
+
+    @Before
+    public void setUp()
+    {
+        responseCache = new CatalogResponseCache(new ObjectMapper(), new SimpleMeterRegistry(), 100, 64);
+        itemController = new ItemController();
+        TestUtils.injectObjects(itemController, "itemCatalog", itemCatalog);
+        TestUtils.injectObjects(itemController, "catalogVersion", catalogVersion);
+        TestUtils.injectObjects(itemController, "responseCache", responseCache);
+        TestUtils.injectObjects(itemController, "defaultPageSize", 50);
+        TestUtils.injectObjects(itemController, "maxPageSize", 500);
+        Item round = new Item();
+        round.setId(1L);
+        round.setName("Round Widget");
+        round.setPrice(BigDecimal.ONE);
+        round.setDescription("A widget that is round");
+        when(itemCatalog.findById(1L)).thenReturn(Optional.of(round));
+        when(itemCatalog.findPage(0L, 51)).thenReturn(Arrays.asList(round));
+    }
+
+    @Test
+    public void item_is_not_modified_until_it_changes()
+    {
+        ResponseEntity<byte[]> first = itemController.getItemById(1L, null, null);
+        String etag = first.getHeaders().getETag();
+        assertEquals(200, first.getStatusCodeValue());
+        assertNotNull(etag);
+
+        ResponseEntity<byte[]> again = itemController.getItemById(1L, etag, null);
+        assertEquals(304, again.getStatusCodeValue());
+        assertNull(again.getBody());
+        verify(itemCatalog, times(1)).findById(1L);
+
+        catalogVersion.itemChanged(2L);
+        assertEquals(304, itemController.getItemById(1L, "W/" + etag, null).getStatusCodeValue());
+
+        catalogVersion.itemChanged(1L);
+        ResponseEntity<byte[]> changed = itemController.getItemById(1L, etag, null);
+        assertEquals(200, changed.getStatusCodeValue());
+        assertNotEquals(etag, changed.getHeaders().getETag());
+    }
+
+    @Test
+    public void listing_is_not_modified_until_any_item_changes()
+    {
+        ResponseEntity<byte[]> first = itemController.getItems(null, null, null, null);
+        String etag = first.getHeaders().getETag();
+        assertEquals(200, first.getStatusCodeValue());
+
+        assertEquals(304, itemController.getItems(null, null, "\"other\", " + etag, null).getStatusCodeValue());
+        verify(itemCatalog, times(1)).findPage(0L, 51);
+
+        catalogVersion.itemChanged(2L);
+        assertEquals(200, itemController.getItems(null, null, etag, null).getStatusCodeValue());
+
+        String current = itemController.getItems(null, null, null, null).getHeaders().getETag();
+        String itemTag = itemController.getItemById(1L, null, null).getHeaders().getETag();
+        catalogVersion.allChanged();
+        assertNotEquals(current, itemController.getItems(null, null, null, null).getHeaders().getETag());
+        assertNotEquals(itemTag, itemController.getItemById(1L, null, null).getHeaders().getETag());
+    }
+
+    @Test
+    public void gzip_body_has_its_own_tag()
+    {
+        String plainTag = itemController.getItemById(1L, null, null).getHeaders().getETag();
+        String gzipTag = itemController.getItemById(1L, null, "gzip").getHeaders().getETag();
+        assertEquals(CatalogVersion.gzipTag(plainTag), gzipTag);
+        assertNotEquals(plainTag, gzipTag);
+
+        ResponseEntity<byte[]> revalidated = itemController.getItemById(1L, gzipTag, "gzip");
+        assertEquals(304, revalidated.getStatusCodeValue());
+        assertEquals(gzipTag, revalidated.getHeaders().getETag());
+        assertEquals("Accept-Encoding", revalidated.getHeaders().getFirst("Vary"));
+        assertEquals(plainTag, itemController.getItemById(1L, plainTag, null).getHeaders().getETag());
+
+        catalogVersion.itemChanged(1L);
+        assertEquals(200, itemController.getItemById(1L, gzipTag, "gzip").getStatusCodeValue());
+    }
+
+    @Test
+    public void bodies_are_encoded_once_per_version() throws IOException
+    {
+        byte[] plain = itemController.getItemById(1L, null, null).getBody();
+        assertTrue(new String(plain, StandardCharsets.UTF_8).contains("\"name\":\"Round Widget\""));
+
+        ResponseEntity<byte[]> gzipped = itemController.getItemById(1L, null, "br, gzip;q=0.8");
+        assertEquals("gzip", gzipped.getHeaders().getFirst("Content-Encoding"));
+        assertArrayEquals(plain, StreamUtils.copyToByteArray(
+                new GZIPInputStream(new ByteArrayInputStream(gzipped.getBody()))));
+        assertSame(plain, itemController.getItemById(1L, null, "gzip;q=0").getBody());
+        verify(itemCatalog, times(1)).findById(1L);
+
+        responseCache.onCatalogChanged(new CatalogChangedEvent(1L));
+        itemController.getItemById(1L, null, null);
+        verify(itemCatalog, times(2)).findById(1L);
+    }
+
+}
@@ -0,0 +1,120 @@
+package com.example.demo;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.example.demo.catalog.CatalogChangedEvent;
+import com.example.demo.catalog.ItemSearchIndex;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+
+public class ItemSearchIndexTest {
+
+    private ItemRepository itemRepo = mock(ItemRepository.class);
+
+    private ItemSearchIndex index;
+
+    private Item round;
+
+    private Item square;
+
+    private Item gadget;
+
+    @Before
+    public void setUp()
+    {
+        round = item(1L, "Round Widget", "A widget that is round");
+        square = item(2L, "Square Widget", "A widget that is square");
+        gadget = item(3L, "Gadget", "Pairs well with a round widget");
+        when(itemRepo.findAll()).thenReturn(Arrays.asList(round, square, gadget));
+        index = new ItemSearchIndex(itemRepo);
+        index.rebuild();
+    }
+
+    @Test
+    public void prefix_matches_rank_name_above_description()
+    {
+        List<Item> results = index.search("rou", 10);
+
+        assertEquals(Arrays.asList(round, gadget), results);
+    }
+
+    @Test
+    public void all_tokens_must_match()
+    {
+        assertEquals(Arrays.asList(square), index.search("squ widget", 10));
+        assertTrue(index.search("square gadget", 10).isEmpty());
+    }
+
+    @Test
+    public void tolerates_typos()
+    {
+        assertEquals(Arrays.asList(square), index.search("sqaure", 10));
+        assertEquals(Arrays.asList(round), index.search("ruond widg", 1));
+    }
+
+    @Test
+    public void exact_match_beats_prefix_match()
+    {
+        Item widgets = item(4L, "Widgets", "Assorted");
+        when(itemRepo.findAll()).thenReturn(Arrays.asList(widgets, round));
+        index.rebuild();
+
+        assertEquals(Arrays.asList(round, widgets), index.search("widget", 10));
+    }
+
+    @Test
+    public void change_event_updates_index()
+    {
+        Item renamed = item(2L, "Oval Widget", "A widget that is oval");
+        when(itemRepo.findById(2L)).thenReturn(Optional.of(renamed));
+
+        index.onCatalogChanged(new CatalogChangedEvent(2L));
+
+        assertTrue(index.search("square", 10).isEmpty());
+        assertEquals(Arrays.asList(renamed), index.search("oval", 10));
+
+        when(itemRepo.findById(2L)).thenReturn(Optional.empty());
+        index.onCatalogChanged(new CatalogChangedEvent(2L));
+
+        assertTrue(index.search("oval", 10).isEmpty());
+    }
+
+    @Test
+    public void updated_item_keeps_its_rank()
+    {
+        assertEquals(Arrays.asList(round, square, gadget), index.search("widget", 10));
+
+        // Enough updates for the index to compact its tombstones several times.
+        for (int i = 0; i < 10; i++) {
+            Item updated = item(1L, "Round Widget", "A widget that is round, version " + i);
+            when(itemRepo.findById(1L)).thenReturn(Optional.of(updated));
+            index.onCatalogChanged(new CatalogChangedEvent(1L));
+        }
+
+        List<Item> results = index.search("widget", 10);
+        assertEquals(3, results.size());
+        assertEquals("A widget that is round, version 9", results.get(0).getDescription());
+        assertEquals(Arrays.asList(square, gadget), results.subList(1, 3));
+    }
+
+    private static Item item(Long id, String name, String description)
+    {
+        Item item = new Item();
+        item.setId(id);
+        item.setName(name);
+        item.setDescription(description);
+        item.setPrice(BigDecimal.ONE);
+        return item;
+    }
+
+}
@@ -0,0 +1,109 @@
+package com.example.demo;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+
+import java.io.IOException;
+import java.util.Date;
+
+import javax.servlet.ServletException;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.example.demo.security.AuthenticatedUser;
+import com.example.demo.security.JWTAuthenticationVerificationFilter;
+import com.example.demo.security.JWTTokens;
+import com.example.demo.security.SecurityConstants;
+import com.example.demo.security.VerifiedTokenCache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Runs real signed tokens through the filter and checks what it leaves in the
+ * security context for the rest of the chain.
+ */
+public class JWTAuthenticationVerificationFilterTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private final VerifiedTokenCache tokenCache = new VerifiedTokenCache(10, 60_000);
+
+    private final JWTAuthenticationVerificationFilter filter =
+            new JWTAuthenticationVerificationFilter(mock(AuthenticationManager.class), tokenCache, registry);
+
+    @After
+    public void tearDown()
+    {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    public void claims_become_the_principal() throws Exception
+    {
+        Authentication authentication = filter(JWTTokens.create("alice", 3L, 7L));
+
+        AuthenticatedUser user = (AuthenticatedUser) authentication.getPrincipal();
+        assertEquals("alice", user.getUsername());
+        assertEquals(Long.valueOf(3L), user.getUserId());
+        assertEquals(Long.valueOf(7L), user.getCartId());
+        assertEquals(1, tokenCache.size());
+    }
+
+    @Test
+    public void second_request_is_served_from_the_cache() throws Exception
+    {
+        String token = JWTTokens.create("alice", 3L, 7L);
+
+        Authentication first = filter(token);
+        Authentication second = filter(token);
+
+        assertSame(first, second);
+        assertEquals(1, registry.get("security.jwt.verify").timer().count());
+        assertEquals(1.0, registry.get("security.jwt.cache.hits").counter().count(), 0.0);
+    }
+
+    @Test
+    public void expired_token_authenticates_no_one() throws Exception
+    {
+        String token = JWT.create()
+                .withSubject("alice")
+                .withExpiresAt(new Date(System.currentTimeMillis() - 60_000))
+                .sign(JWTTokens.ALGORITHM);
+
+        assertNull(filter(token));
+        assertEquals(0, tokenCache.size());
+    }
+
+    @Test
+    public void token_signed_with_another_key_authenticates_no_one() throws Exception
+    {
+        String token = JWT.create()
+                .withSubject("alice")
+                .withExpiresAt(new Date(System.currentTimeMillis() + 60_000))
+                .sign(Algorithm.HMAC512("not-our-secret".getBytes()));
+
+        assertNull(filter(token));
+        assertEquals(0, tokenCache.size());
+    }
+
+    // The authentication the rest of the chain sees.
+    private Authentication filter(String token) throws IOException, ServletException
+    {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/item");
+        request.addHeader(SecurityConstants.HEADER_STRING, SecurityConstants.TOKEN_PREFIX + token);
+        Authentication[] seen = new Authentication[1];
+        filter.doFilter(request, new MockHttpServletResponse(),
+                (req, res) -> seen[0] = SecurityContextHolder.getContext().getAuthentication());
+        SecurityContextHolder.clearContext();
+        return seen[0];
+    }
+
+}
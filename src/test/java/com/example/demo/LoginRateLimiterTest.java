@@ -0,0 +1,55 @@
+package com.example.demo;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.example.demo.security.LoginRateLimiter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class LoginRateLimiterTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    public void allows_burst_then_refills_at_rate()
+    {
+        // 6 per minute for a user is one token every 10 seconds
+        LoginRateLimiter limiter = new LoginRateLimiter(6, 2, 600, 100, 1000, registry);
+
+        assertEquals(0, limiter.tryAcquire("alice", "10.0.0.1", 0));
+        assertEquals(0, limiter.tryAcquire("alice", "10.0.0.1", 0));
+        assertEquals(10_000, limiter.tryAcquire("Alice", "10.0.0.2", 0));
+
+        assertEquals(0, limiter.tryAcquire("alice", "10.0.0.1", 10_000));
+        assertEquals(0, limiter.tryAcquire("bob", "10.0.0.1", 10_000));
+        assertEquals(1.0, registry.get("security.login.throttled").tag("key", "username").counter().count(), 0.0);
+    }
+
+    @Test
+    public void limits_each_client_across_usernames()
+    {
+        LoginRateLimiter limiter = new LoginRateLimiter(60, 10, 60, 3, 1000, registry);
+
+        assertEquals(0, limiter.tryAcquire("a", "10.0.0.1", 0));
+        assertEquals(0, limiter.tryAcquire("b", "10.0.0.1", 0));
+        assertEquals(0, limiter.tryAcquire("c", "10.0.0.1", 0));
+        assertTrue(limiter.tryAcquire("d", "10.0.0.1", 0) > 0);
+        assertEquals(0, limiter.tryAcquire("d", "10.0.0.2", 0));
+    }
+
+    @Test
+    public void evicts_idle_buckets()
+    {
+        LoginRateLimiter limiter = new LoginRateLimiter(60, 1, 60, 1, 1000, registry);
+
+        limiter.tryAcquire("alice", "10.0.0.1", 0);
+        assertEquals(2, limiter.size());
+
+        limiter.tryAcquire("bob", "10.0.0.2", 120_000);
+        assertEquals(2, limiter.size());
+        assertEquals(0, limiter.tryAcquire("alice", "10.0.0.1", 120_000));
+    }
+
+}
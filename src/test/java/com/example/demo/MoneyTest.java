@@ -0,0 +1,37 @@
+package com.example.demo;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+
+import org.junit.Test;
+
+import com.example.demo.model.Money;
+
+public class MoneyTest {
+
+    @Test
+    public void converts_at_the_boundary()
+    {
+        assertEquals(299, Money.toMinor(new BigDecimal("2.99")));
+        assertEquals(300, Money.toMinor(new BigDecimal("3")));
+        assertEquals(0, Money.toMinor(null));
+        assertEquals(new BigDecimal("2.99"), Money.toDecimal(299));
+        assertEquals(new BigDecimal("-0.05"), Money.toDecimal(-5));
+    }
+
+    @Test
+    public void rounds_half_even()
+    {
+        assertEquals(2, Money.toMinor(new BigDecimal("0.025")));
+        assertEquals(4, Money.toMinor(new BigDecimal("0.035")));
+        assertEquals(3, Money.toMinor(new BigDecimal("0.0251")));
+    }
+
+    @Test(expected = ArithmeticException.class)
+    public void overflow_fails()
+    {
+        Money.times(Long.MAX_VALUE / 2, 3);
+    }
+
+}
@@ -1,23 +1,35 @@
 package com.example.demo;
 
 import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.math.BigDecimal;
 import java.util.Arrays;
 import java.util.List;
 
 import com.example.demo.controllers.OrderController;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.http.ResponseEntity;
 
 import com.example.demo.model.persistence.Cart;
 import com.example.demo.model.persistence.Item;
 import com.example.demo.model.persistence.User;
 import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.persistence.repositories.CartRepository;
 import com.example.demo.model.persistence.repositories.OrderRepository;
 import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.model.responses.OrderHistoryRow;
+import com.example.demo.model.responses.OrderStatus;
+import com.example.demo.model.responses.OrderView;
+import com.example.demo.orders.OrderSubmission;
+import com.example.demo.orders.OrderWriteBehind;
+import com.example.demo.security.AuthenticatedUser;
 
 public class OrderControllerTest {
 
@@ -27,12 +39,15 @@ public class OrderControllerTest {
 
     private OrderRepository orderRepo = mock(OrderRepository.class);
 
+    private CartRepository cartRepo = mock(CartRepository.class);
+
     @Before
     public void setup()
     {
         orderController = new OrderController();
         TestUtils.injectObjects(orderController, "userRepository", userRepo);
         TestUtils.injectObjects(orderController, "orderRepository", orderRepo);
+        TestUtils.injectObjects(orderController, "cartRepository", cartRepo);
     }
 
     @Test
@@ -49,23 +64,75 @@ public class OrderControllerTest {
 
         Item item = new Item();
         item.setId(0L);
+        item.setPrice(BigDecimal.valueOf(2.99));
 
-        List<Item> items = Arrays.asList(item, item, item);
-        cart.setItems(items);
+        cart.addItem(item, 3);
 
         user.setCart(cart);
 
         when(userRepo.findByUsername("test")).thenReturn(user);
 
-        ResponseEntity<UserOrder> response = orderController.submit("test");
+        ResponseEntity<?> response = orderController.submit("test", null);
 
         assertEquals(200, response.getStatusCodeValue());
-        assertEquals(3, response.getBody().getItems().size());
-        assertEquals("test", response.getBody().getUser().getUsername());
-        assertEquals(cart.getTotal(), response.getBody().getTotal());
+        OrderView order = (OrderView) response.getBody();
+        assertEquals(1, order.getLines().size());
+        assertEquals(3, order.getLines().get(0).getQuantity());
+        assertEquals(BigDecimal.valueOf(2.99), order.getLines().get(0).getUnitPrice());
+        assertEquals(cart.getTotal(), order.getTotal());
+
+        ArgumentCaptor<UserOrder> saved = ArgumentCaptor.forClass(UserOrder.class);
+        verify(orderRepo).save(saved.capture());
+        assertEquals("test", saved.getValue().getUser().getUsername());
+
+    }
+
+
+    @Test
+    public void submitOrder_write_behind_accepts()
+    {
+        User user  = new User();
+        user.setId(3L);
+        user.setUsername("test");
+
+        Cart cart = new Cart();
+        cart.setId(7L);
+        cart.setUser(user);
+        user.setCart(cart);
+
+        OrderWriteBehind writeBehind = mock(OrderWriteBehind.class);
+        TestUtils.injectObjects(orderController, "orderWriteBehind", writeBehind);
+        when(userRepo.findByUsername("test")).thenReturn(user);
+        when(writeBehind.submit(any(OrderSubmission.class)))
+                .thenReturn(new OrderStatus("abc", OrderStatus.State.ACCEPTED, null));
+
+        ResponseEntity<?> response = orderController.submit("test", null);
 
+        assertEquals(202, response.getStatusCodeValue());
+        assertEquals("/api/order/status/abc", response.getHeaders().getLocation().toString());
+        verify(orderRepo, never()).save(any(UserOrder.class));
     }
 
+    @Test
+    public void submitOrder_write_behind_queue_full()
+    {
+        User user  = new User();
+        user.setId(3L);
+        user.setUsername("test");
+
+        Cart cart = new Cart();
+        cart.setId(7L);
+        cart.setUser(user);
+        user.setCart(cart);
+
+        OrderWriteBehind writeBehind = mock(OrderWriteBehind.class);
+        TestUtils.injectObjects(orderController, "orderWriteBehind", writeBehind);
+        when(userRepo.findByUsername("test")).thenReturn(user);
+
+        ResponseEntity<?> response = orderController.submit("test", null);
+
+        assertEquals(503, response.getStatusCodeValue());
+    }
 
     @Test
     public void submitOrder_user_not_found()
@@ -74,7 +141,7 @@ public class OrderControllerTest {
 
         when(userRepo.findByUsername("test")).thenReturn(user);
 
-        ResponseEntity<UserOrder> response = orderController.submit("test");
+        ResponseEntity<?> response = orderController.submit("test", null);
 
         assertNotNull(response);
         assertEquals(404, response.getStatusCodeValue());
@@ -96,31 +163,52 @@ public class OrderControllerTest {
 
         Item item = new Item();
         item.setId(0L);
+        item.setPrice(BigDecimal.valueOf(2.99));
 
-        List<Item> items = Arrays.asList(item, item, item);
-        cart.setItems(items);
+        cart.addItem(item, 3);
 
         user.setCart(cart);
 
         when(userRepo.findByUsername("test")).thenReturn(user);
 
-        UserOrder userOrder = UserOrder.createFromCart(cart);
+        when(orderRepo.findHistoryByUserId(0L)).thenReturn(Arrays.asList(
+                new OrderHistoryRow(5L, cart.getTotalMinor(), 0L, "Round Widget", 299L, 3)));
 
-        List<UserOrder> userOrders = Arrays.asList(userOrder);
-
-        when(orderRepo.findByUser(user)).thenReturn(userOrders);
-
-        ResponseEntity<List<UserOrder>> response = orderController.getOrdersForUser("test");
+        ResponseEntity<List<OrderView>> response = orderController.getOrdersForUser("test", null);
 
         assertEquals(200, response.getStatusCodeValue());
-        assertEquals(3, response.getBody().get(0).getItems().size());
-        assertEquals("test", response.getBody().get(0).getUser().getUsername());
+        assertEquals(1, response.getBody().size());
+        assertEquals(3, response.getBody().get(0).getLines().get(0).getQuantity());
+        assertEquals("Round Widget", response.getBody().get(0).getLines().get(0).getName());
         assertEquals(cart.getTotal(), response.getBody().get(0).getTotal());
 
     }
 
 
 
+    @Test
+    public void getOrdersForUser_uses_user_id_from_token()
+    {
+        User user  = new User();
+        user.setId(3L);
+        user.setUsername("test");
+
+        Cart cart = new Cart();
+        cart.setId(7L);
+        cart.setUser(user);
+
+        when(orderRepo.findHistoryByUserId(3L)).thenReturn(Arrays.asList(
+                new OrderHistoryRow(5L, 0L, null, null, null, null)));
+
+        ResponseEntity<List<OrderView>> response =
+                orderController.getOrdersForUser("test", new AuthenticatedUser("test", 3L, 7L));
+
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(1, response.getBody().size());
+        assertTrue(response.getBody().get(0).getLines().isEmpty());
+        verify(userRepo, never()).findByUsername("test");
+    }
+
     @Test
     public void getOrdersForUser_user_not_found()
     {
@@ -132,19 +220,13 @@ public class OrderControllerTest {
 
         Item item = new Item();
         item.setId(0L);
+        item.setPrice(BigDecimal.valueOf(2.99));
 
-        List<Item> items = Arrays.asList(item, item, item);
-        cart.setItems(items);
+        cart.addItem(item, 3);
 
         when(userRepo.findByUsername("test")).thenReturn(user);
 
-        UserOrder userOrder = UserOrder.createFromCart(cart);
-
-        List<UserOrder> userOrders = Arrays.asList(userOrder);
-
-        when(orderRepo.findByUser(user)).thenReturn(userOrders);
-
-        ResponseEntity<List<UserOrder>> response = orderController.getOrdersForUser("test");
+        ResponseEntity<List<OrderView>> response = orderController.getOrdersForUser("test", null);
 
         assertEquals(404, response.getStatusCodeValue());
 
@@ -0,0 +1,173 @@
+package com.example.demo;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.controllers.OrderExportEndpoint;
+import com.example.demo.metrics.QueryCounter;
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.persistence.repositories.CartRepository;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.model.persistence.repositories.OrderRepository;
+import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.orders.OrderExportService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Exports a run of orders with a fetch size small enough that it spans
+ * several blocks, and checks bounds, resuming and the statements it runs.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class OrderExportTest {
+
+    private static final int ORDERS = 30;
+
+    @Autowired
+    private OrderExportService exportService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${orders.export.fetch-size}")
+    private int fetchSize;
+
+    private List<Long> ids;
+
+    @Before
+    public void setUp()
+    {
+        ids = new TransactionTemplate(transactionManager).execute(status -> {
+            User user = TestUtils.createUserWithCart(userRepository, cartRepository, "export-");
+            Cart cart = user.getCart();
+            for (int i = 0; i < 3; i++) {
+                Item item = new Item();
+                item.setName("Export Item " + i);
+                item.setDescription("Export item");
+                item.setPrice(BigDecimal.ONE);
+                cart.addItem(itemRepository.save(item), 2);
+            }
+            List<Long> saved = new ArrayList<>();
+            for (int i = 0; i < ORDERS; i++) {
+                saved.add(orderRepository.save(UserOrder.createFromCart(cart)).getId());
+            }
+            return saved;
+        });
+    }
+
+    @Test
+    public void bounds_are_inclusive()
+    {
+        List<JsonNode> orders = export(ids.get(5), ids.get(9));
+
+        assertEquals(ids.subList(5, 10), idsOf(orders));
+        assertEquals(3, orders.get(0).get("lines").size());
+        assertTrue(orders.get(0).get("user").get("username").asText().startsWith("export-"));
+    }
+
+    @Test
+    public void resumes_from_last_id_plus_one()
+    {
+        List<Long> first = idsOf(export(ids.get(0), ids.get(12)));
+        List<Long> rest = idsOf(export(first.get(first.size() - 1) + 1, ids.get(ORDERS - 1)));
+
+        List<Long> all = new ArrayList<>(first);
+        all.addAll(rest);
+        assertEquals(ids, all);
+    }
+
+    @Test
+    public void statements_grow_with_blocks_not_orders()
+    {
+        // One cursor, plus one statement per block for the lines.
+        assertEquals(1 + 1, countStatements(ids.get(0), ids.get(fetchSize - 1)));
+        assertEquals(1 + ORDERS / fetchSize, countStatements(ids.get(0), ids.get(ORDERS - 1)));
+    }
+
+    @Test
+    public void endpoint_is_not_found_when_disabled() throws IOException
+    {
+        OrderExportEndpoint endpoint = new OrderExportEndpoint();
+        TestUtils.injectObjects(endpoint, "orderExportService", exportService);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        endpoint.exportOrders(null, null, response);
+
+        assertEquals(404, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    private int countStatements(Long fromId, Long toId)
+    {
+        QueryCounter.start();
+        try {
+            export(fromId, toId);
+            return QueryCounter.current().getStatements();
+        } finally {
+            QueryCounter.stop();
+        }
+    }
+
+    private List<JsonNode> export(Long fromId, Long toId)
+    {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            exportService.export(fromId, toId, out);
+            List<JsonNode> orders = new ArrayList<>();
+            for (String line : new String(out.toByteArray(), StandardCharsets.UTF_8).split("\n")) {
+                if (!line.isEmpty()) {
+                    orders.add(objectMapper.readTree(line));
+                }
+            }
+            return orders;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static List<Long> idsOf(List<JsonNode> orders)
+    {
+        List<Long> ids = new ArrayList<>();
+        for (JsonNode order : orders) {
+            ids.add(order.get("id").asLong());
+        }
+        return ids;
+    }
+
+}
@@ -0,0 +1,272 @@
+package com.example.demo;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.example.demo.inventory.InventoryService;
+import com.example.demo.model.persistence.Inventory;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.OrderLine;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.persistence.repositories.InventoryRepository;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.model.persistence.repositories.OrderRepository;
+import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.model.responses.OrderStatus;
+import com.example.demo.orders.OrderSubmission;
+import com.example.demo.orders.OrderWriteBehind;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Drives the writer against a repository that fails on demand, with real
+ * stock reservations so confirms and releases show up in what is available.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class OrderWriteBehindTest {
+
+    private static final String BAD = "Bad Widget";
+
+    // inventory.lease-size in the test properties; the first reservation
+    // leases this many units into memory.
+    private static final long LEASED = 40;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    private OrderRepository orderRepository = mock(OrderRepository.class);
+
+    private UserRepository userRepository = mock(UserRepository.class);
+
+    private SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private AtomicLong nextId = new AtomicLong(1);
+
+    private Item item;
+
+    private OrderWriteBehind writeBehind;
+
+    @Before
+    public void setUp()
+    {
+        item = new Item();
+        item.setName("Queued Widget");
+        item.setDescription("Written behind");
+        item.setPrice(BigDecimal.ONE);
+        item = itemRepository.save(item);
+        inventoryRepository.save(new Inventory(item.getId(), 1000));
+
+        when(userRepository.getOne(anyLong())).thenReturn(new User());
+        when(orderRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<UserOrder> orders = invocation.getArgument(0);
+            for (UserOrder order : orders) {
+                if (BAD.equals(order.getLines().get(0).getName())) {
+                    throw new DataIntegrityViolationException("Bad order");
+                }
+            }
+            for (UserOrder order : orders) {
+                order.setId(nextId.getAndIncrement());
+            }
+            return orders;
+        });
+    }
+
+    @After
+    public void tearDown() throws InterruptedException
+    {
+        if (writeBehind != null) {
+            writeBehind.stop();
+        }
+    }
+
+    @Test
+    public void failed_batch_is_retried_one_order_at_a_time()
+    {
+        writeBehind = writer(inventoryService, 60000, 30000);
+        OrderSubmission good = submission("Good Widget", 2);
+        OrderSubmission bad = submission(BAD, 3);
+        OrderSubmission alsoGood = submission("Good Widget", 1);
+
+        // Queued before the writer starts, so all three go in one batch.
+        writeBehind.submit(good);
+        writeBehind.submit(bad);
+        writeBehind.submit(alsoGood);
+        writeBehind.start();
+
+        assertEquals(OrderStatus.State.PERSISTED, awaitState(good, OrderStatus.State.PERSISTED).getState());
+        assertEquals(OrderStatus.State.FAILED, awaitState(bad, OrderStatus.State.FAILED).getState());
+        assertNotNull(awaitState(alsoGood, OrderStatus.State.PERSISTED).getOrderId());
+        // One batch, then each order on its own.
+        verify(orderRepository, times(4)).saveAll(anyList());
+        // The failed order's stock is back; the persisted orders keep theirs.
+        assertEquals(LEASED - 2 - 1, inventoryService.available(item.getId()));
+    }
+
+    @Test
+    public void committed_batch_is_not_retried_when_completing_it_fails()
+    {
+        InventoryService inventory = spy(inventoryService);
+        doAnswer(invocation -> {
+            throw new IllegalStateException("Confirm failed");
+        }).doCallRealMethod().when(inventory).confirm(any());
+        writeBehind = writer(inventory, 60000, 30000);
+        writeBehind.start();
+
+        writeBehind.submit(submission("Good Widget", 1));
+        OrderSubmission next = submission("Good Widget", 1);
+        awaitSaves(1);
+        writeBehind.submit(next);
+
+        awaitState(next, OrderStatus.State.PERSISTED);
+        verify(orderRepository, times(2)).saveAll(anyList());
+    }
+
+    @Test
+    public void finished_status_expires()
+    {
+        writeBehind = writer(inventoryService, 1, 30000);
+        writeBehind.start();
+        OrderSubmission submission = submission("Good Widget", 1);
+
+        writeBehind.submit(submission);
+
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (writeBehind.getStatus(submission.getSubmissionId(), 1L) != null) {
+            assertTrue("Status did not expire", System.currentTimeMillis() < deadline);
+            pause();
+        }
+        verify(orderRepository, times(1)).saveAll(anyList());
+    }
+
+    @Test
+    public void stop_writes_everything_queued()
+    {
+        writeBehind = writer(inventoryService, 60000, 30000);
+        for (int i = 0; i < 50; i++) {
+            writeBehind.submit(submission("Good Widget", 1));
+        }
+        writeBehind.start();
+
+        stop();
+
+        assertEquals(50, nextId.get() - 1);
+        assertEquals(0, registry.counter("orders.write-behind.dropped").count(), 0);
+    }
+
+    @Test
+    public void stop_drops_and_releases_what_a_stalled_writer_left()
+    {
+        CountDownLatch unblock = new CountDownLatch(1);
+        when(orderRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            unblock.await();
+            return invocation.getArgument(0);
+        });
+        writeBehind = writer(inventoryService, 60000, 200);
+        writeBehind.start();
+        writeBehind.submit(submission("Good Widget", 1));
+        awaitSaves(1);
+        OrderSubmission queued = submission("Good Widget", 4);
+        writeBehind.submit(queued);
+
+        stop();
+        unblock.countDown();
+
+        assertEquals(1, registry.counter("orders.write-behind.dropped").count(), 0);
+        assertEquals(OrderStatus.State.FAILED, writeBehind.getStatus(queued.getSubmissionId(), 1L).getState());
+        // Only the stalled order still holds stock.
+        assertEquals(LEASED - 1, inventoryService.available(item.getId()));
+    }
+
+    private OrderWriteBehind writer(InventoryService inventory, long statusTtlMillis, long stopTimeoutMillis)
+    {
+        OrderWriteBehind writer = new OrderWriteBehind(userRepository, orderRepository,
+                mock(PlatformTransactionManager.class), registry, 100, 100, statusTtlMillis, stopTimeoutMillis);
+        TestUtils.injectObjects(writer, "inventoryService", inventory);
+        return writer;
+    }
+
+    private OrderSubmission submission(String name, int quantity)
+    {
+        List<OrderLine> lines = Collections.singletonList(new OrderLine(item.getId(), name, 100L, quantity));
+        return new OrderSubmission(UUID.randomUUID().toString(), 1L, lines, 100L * quantity)
+                .withReservation(inventoryService.reserve(lines));
+    }
+
+    private OrderStatus awaitState(OrderSubmission submission, OrderStatus.State state)
+    {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (true) {
+            OrderStatus status = writeBehind.getStatus(submission.getSubmissionId(), 1L);
+            if (status != null && status.getState() == state) {
+                return status;
+            }
+            assertTrue("Still " + (status == null ? null : status.getState()),
+                    System.currentTimeMillis() < deadline);
+            pause();
+        }
+    }
+
+    private void awaitSaves(int count)
+    {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (mockingDetails(orderRepository).getInvocations().stream()
+                .filter(invocation -> invocation.getMethod().getName().equals("saveAll")).count() < count) {
+            assertTrue("Writer did not save", System.currentTimeMillis() < deadline);
+            pause();
+        }
+    }
+
+    private void stop()
+    {
+        try {
+            writeBehind.stop();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void pause()
+    {
+        try {
+            Thread.sleep(10);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
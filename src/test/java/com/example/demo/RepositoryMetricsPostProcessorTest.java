@@ -0,0 +1,48 @@
+package com.example.demo;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.junit.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+
+import com.example.demo.metrics.RepositoryMetricsPostProcessor;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class RepositoryMetricsPostProcessorTest {
+
+    @Test
+    public void times_repository_calls_by_method_and_outcome()
+    {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("meterRegistry", registry);
+        RepositoryMetricsPostProcessor postProcessor =
+                new RepositoryMetricsPostProcessor(beanFactory.getBeanProvider(MeterRegistry.class));
+
+        ItemRepository target = mock(ItemRepository.class);
+        when(target.count()).thenReturn(2L).thenThrow(new IllegalStateException());
+        ProxyFactory proxyFactory = new ProxyFactory(target);
+        proxyFactory.addInterface(ItemRepository.class);
+        ItemRepository repository =
+                (ItemRepository) postProcessor.postProcessAfterInitialization(proxyFactory.getProxy(), "itemRepository");
+
+        assertEquals(2L, repository.count());
+        try {
+            repository.count();
+            fail("expected exception");
+        } catch (IllegalStateException expected) {
+        }
+
+        assertEquals(1, registry.get("repository.invocations").tag("repository", "ItemRepository")
+                .tag("method", "count").tag("outcome", "success").timer().count());
+        assertEquals(1, registry.get("repository.invocations").tag("repository", "ItemRepository")
+                .tag("method", "count").tag("outcome", "error").timer().count());
+    }
+
+}
@@ -1,6 +1,12 @@
 package com.example.demo;
 
 import java.lang.reflect.Field;
+import java.util.UUID;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.repositories.CartRepository;
+import com.example.demo.model.persistence.repositories.UserRepository;
 
 public class TestUtils {
 
@@ -35,4 +41,20 @@ public class TestUtils {
         }
     }
 
-}
\ No newline at end of file
+    /**
+     * Saves a user with a unique name starting with {@code prefix} and an empty
+     * cart. Call it inside a transaction.
+     */
+    public static User createUserWithCart(UserRepository userRepository, CartRepository cartRepository, String prefix)
+    {
+        User user = new User();
+        user.setUsername(prefix + UUID.randomUUID());
+        user.setPassword("unused");
+        Cart cart = new Cart();
+        cart.setUser(user);
+        user.setCart(cart);
+        cartRepository.save(cart);
+        return userRepository.save(user);
+    }
+
+}
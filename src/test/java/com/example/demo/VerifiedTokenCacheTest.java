@@ -0,0 +1,54 @@
+package com.example.demo;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.Date;
+
+import org.junit.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+
+import com.example.demo.security.VerifiedTokenCache;
+
+public class VerifiedTokenCacheTest {
+
+    private final UsernamePasswordAuthenticationToken auth =
+            new UsernamePasswordAuthenticationToken("test", null, Collections.emptyList());
+
+    @Test
+    public void entry_expires_with_token()
+    {
+        VerifiedTokenCache cache = new VerifiedTokenCache(10, 60_000);
+
+        cache.put("token", auth, new Date(1_000), 0);
+
+        assertSame(auth, cache.get("token", 999));
+        assertNull(cache.get("token", 1_000));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void entry_expires_after_ttl()
+    {
+        VerifiedTokenCache cache = new VerifiedTokenCache(10, 100);
+
+        cache.put("token", auth, new Date(60_000), 0);
+
+        assertSame(auth, cache.get("token", 99));
+        assertNull(cache.get("token", 100));
+    }
+
+    @Test
+    public void size_stays_bounded()
+    {
+        VerifiedTokenCache cache = new VerifiedTokenCache(10, 60_000);
+
+        for (int i = 0; i < 100; i++) {
+            cache.put("token" + i, auth, null, 0);
+        }
+
+        assertTrue(cache.size() <= 10);
+        assertSame(auth, cache.get("token99", 1));
+    }
+
+}